@@ -2,6 +2,7 @@ package com.dbdeploy;
 
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.database.LineEnding;
+import com.dbdeploy.database.TransactionMode;
 import com.dbdeploy.exceptions.UsageException;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
@@ -27,7 +28,26 @@ public class AntTarget extends Task {
 			+ "\n\t\tundoOutputfile=\"[UNDO SCRIPT PATH + NAME]\""
 			+ "\n\t\tchangeLogTableName=\"[CHANGE LOG TABLE NAME]\""
 			+ "\n\t\tdelimiter=\"[STATEMENT DELIMITER - default ;]\""
-			+ "\n\t\tdelimitertype=\"[STATEMENT DELIMITER TYPE - row or normal, default normal]\""
+			+ "\n\t\tdelimitertype=\"[STATEMENT DELIMITER TYPE - row, normal or sql, default normal]\""
+			+ "\n\t\tlazyloading=\"[ONLY READ CHANGE SCRIPTS TO BE APPLIED - true or false, default false]\""
+			+ "\n\t\tscanparallelism=\"[NUMBER OF THREADS READING CHANGE SCRIPTS - default 1]\""
+			+ "\n\t\tscriptindex=\"[CACHE CHECKSUMS IN THE SCRIPT FOLDER - true or false, default false]\""
+			+ "\n\t\tbatchsize=\"[NUMBER OF DML STATEMENTS SENT AS ONE BATCH - default 1]\""
+			+ "\n\t\tstreamoutput=\"[RENDER OUTPUT AND UNDO OUTPUT ONE SCRIPT AT A TIME IN ONE PASS - true or false, default false]\""
+			+ "\n\t\treadahead=\"[READ THE NEXT SCRIPTS WHILE APPLYING THE CURRENT ONE - true or false, default false]\""
+			+ "\n\t\ttransactionmode=\"[TRANSACTION BOUNDARY - statement, script or run, default script]\""
+			+ "\n\t\tscriptspertransaction=\"[NUMBER OF SCRIPTS PER TRANSACTION IN MODE script - default 1]\""
+			+ "\n\t\ttargetsfile=\"[FILE LISTING url userid password OF EACH DATABASE TO DEPLOY TO, INSTEAD OF url]\""
+			+ "\n\t\ttargetparallelism=\"[NUMBER OF DATABASES DEPLOYED TO CONCURRENTLY - default 4]\""
+			+ "\n\t\tapplyparallelism=\"[NUMBER OF CONNECTIONS FOR SCRIPTS WITH A --//@GROUP OR --//@DEPENDS HEADER - default 1]\""
+			+ "\n\t\tslowstatements=\"[NUMBER OF SLOWEST STATEMENTS AND SCRIPTS TO REPORT - default 0]\""
+			+ "\n\t\ttimingsfile=\"[FILE TO WRITE THE TIMINGS OF ALL STATEMENTS TO, AS JSON LINES]\""
+			+ "\n\t\tasynclogging=\"[PRINT THE PROGRESS ON A SEPARATE THREAD - true or false, default false]\""
+			+ "\n\t\tstatementtimeout=\"[SECONDS A STATEMENT MAY RUN BEFORE IT IS CANCELLED - default 0, no limit]\""
+			+ "\n\t\tscripttimeout=\"[SECONDS THE STATEMENTS OF A SCRIPT MAY TAKE TOGETHER - default 0, no limit]\""
+			+ "\n\t\tretries=\"[NUMBER OF RETRIES AFTER DEADLOCKS AND OTHER TRANSIENT FAILURES - default 0]\""
+			+ "\n\t\tsavepointinterval=\"[NUMBER OF STATEMENTS AFTER WHICH A SAVEPOINT IS SET - default 0, none]\""
+			+ "\n\t\tresumable=\"[RECORD HOW FAR FAILED SCRIPTS GOT IN THE CHANGELOG, TO CONTINUE THERE NEXT TIME - true or false, default false]\""
 			+ "\n\t/>"
 			+ "\n\n* - Indicates mandatory parameter";
 
@@ -102,5 +122,81 @@ public class AntTarget extends Task {
 	public void setLineEnding(LineEnding lineEnding) {
 		dbDeploy.setLineEnding(lineEnding);
 	}
+
+	public void setLazyLoading(boolean lazyLoading) {
+		dbDeploy.setLazyLoading(lazyLoading);
+	}
+
+	public void setScanParallelism(int scanParallelism) {
+		dbDeploy.setScanParallelism(scanParallelism);
+	}
+
+	public void setBatchSize(int batchSize) {
+		dbDeploy.setBatchSize(batchSize);
+	}
+
+	public void setStreamOutput(boolean streamOutput) {
+		dbDeploy.setStreamOutput(streamOutput);
+	}
+
+	public void setReadAhead(boolean readAhead) {
+		dbDeploy.setReadAhead(readAhead);
+	}
+
+	public void setTransactionMode(TransactionMode transactionMode) {
+		dbDeploy.setTransactionMode(transactionMode);
+	}
+
+	public void setScriptsPerTransaction(int scriptsPerTransaction) {
+		dbDeploy.setScriptsPerTransaction(scriptsPerTransaction);
+	}
+
+	public void setScriptIndex(boolean scriptIndex) {
+		dbDeploy.setScriptIndex(scriptIndex);
+	}
+
+	public void setTargetsfile(File targetsfile) {
+		dbDeploy.setTargetsfile(targetsfile);
+	}
+
+	public void setTargetParallelism(int targetParallelism) {
+		dbDeploy.setTargetParallelism(targetParallelism);
+	}
+
+	public void setApplyParallelism(int applyParallelism) {
+		dbDeploy.setApplyParallelism(applyParallelism);
+	}
+
+	public void setSlowStatements(int slowStatements) {
+		dbDeploy.setSlowStatements(slowStatements);
+	}
+
+	public void setTimingsfile(File timingsfile) {
+		dbDeploy.setTimingsfile(timingsfile);
+	}
+
+	public void setAsyncLogging(boolean asyncLogging) {
+		dbDeploy.setAsyncLogging(asyncLogging);
+	}
+
+	public void setStatementTimeout(int statementTimeout) {
+		dbDeploy.setStatementTimeout(statementTimeout);
+	}
+
+	public void setScriptTimeout(int scriptTimeout) {
+		dbDeploy.setScriptTimeout(scriptTimeout);
+	}
+
+	public void setRetries(int retries) {
+		dbDeploy.setRetries(retries);
+	}
+
+	public void setSavepointInterval(int savepointInterval) {
+		dbDeploy.setSavepointInterval(savepointInterval);
+	}
+
+	public void setResumable(boolean resumable) {
+		dbDeploy.setResumable(resumable);
+	}
 }
 
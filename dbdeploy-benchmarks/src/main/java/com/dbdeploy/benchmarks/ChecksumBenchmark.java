@@ -0,0 +1,55 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.integration.SyntheticRepository;
+import com.dbdeploy.scripts.ChangeScript;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Creating change scripts from their content, which computes the checksum of each of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChecksumBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	public int scripts;
+
+	private SyntheticRepository repository;
+	private String[] doContents;
+	private String[] undoContents;
+
+	@Setup
+	public void generateContents() {
+		repository = new SyntheticRepository(scripts);
+		doContents = new String[scripts];
+		undoContents = new String[scripts];
+		for (int i = 0; i < scripts; i++) {
+			doContents[i] = repository.doContent(i + 1);
+			undoContents[i] = repository.undoContent(i + 1);
+		}
+	}
+
+	@Benchmark
+	public void checksum(Blackhole blackhole) {
+		for (int i = 0; i < scripts; i++) {
+			ChangeScript script = new ChangeScript(i + 1, repository.fileName(i + 1), doContents[i], undoContents[i]);
+			blackhole.consume(script.getChecksum());
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.AppliedChangesProvider;
+import com.dbdeploy.ChangeScriptApplier;
+import com.dbdeploy.Controller;
+import com.dbdeploy.DeploymentListenerAdapter;
+import com.dbdeploy.PrettyPrinter;
+import com.dbdeploy.database.changelog.AppliedChanges;
+import com.dbdeploy.database.changelog.ChangeLogEntry;
+import com.dbdeploy.integration.SyntheticRepository;
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.ChangeScriptRepository;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Planning a deployment: validating the checksums of the applied changes, finding the change
+ * scripts to apply and logging the status, without applying anything.
+ *
+ * {@link #planWithNestedLoops} is the planner dbdeploy used before, which compared every change
+ * script with every changelog entry, as a baseline. It is quadratic, so with 100k scripts a
+ * single operation takes a long time; leave that size out with -p scripts=1000,10000.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	public int scripts;
+
+	/**
+	 * percentage of the change scripts applied already
+	 */
+	@Param({ "90" })
+	public int appliedPercentage;
+
+	private ChangeScriptRepository changeScriptRepository;
+	private AppliedChangesProvider appliedChangesProvider;
+
+	@Setup
+	public void generateScripts() {
+		List<ChangeScript> changeScripts = new SyntheticRepository(scripts).createChangeScripts();
+		changeScriptRepository = new ChangeScriptRepository(changeScripts);
+
+		final AppliedChanges appliedChanges = new AppliedChanges();
+		final List<ChangeLogEntry> changeLogEntries = new ArrayList<ChangeLogEntry>();
+		Timestamp appliedAt = new Timestamp(System.currentTimeMillis());
+		for (ChangeScript script : changeScripts.subList(0, scripts * appliedPercentage / 100)) {
+			appliedChanges.add(script.getId(), script.getChecksum());
+			changeLogEntries.add(new ChangeLogEntry(script.getId(), appliedAt, "benchmark", script.toString(),
+				script.getChecksum()));
+		}
+
+		appliedChangesProvider = new AppliedChangesProvider() {
+			public List<Long> findChangeLogEntryIds() {
+				return appliedChanges.getIds();
+			}
+
+			public List<ChangeLogEntry> findChangeLogEntries() {
+				return changeLogEntries;
+			}
+
+			public AppliedChanges findAppliedChanges() {
+				return appliedChanges;
+			}
+		};
+	}
+
+	@Benchmark
+	public int plan() throws IOException {
+		ChangeScriptApplier noApplier = new ChangeScriptApplier() {
+			public void apply(List<ChangeScript> changeScript) {
+			}
+		};
+
+		Controller controller = new Controller(changeScriptRepository, appliedChangesProvider, noApplier, null);
+		controller.setListener(new DeploymentListenerAdapter());
+		return controller.processChangeScripts(Long.MAX_VALUE);
+	}
+
+	/**
+	 * the same work as {@link #plan}, with the planning dbdeploy did before it merged the scripts
+	 * with the changelog
+	 */
+	@Benchmark
+	public int planWithNestedLoops() {
+		List<ChangeScript> available = changeScriptRepository.getAvailableChangeScripts();
+		List<Long> applied = appliedChangesProvider.findChangeLogEntryIds();
+		List<ChangeLogEntry> changeLogEntries = appliedChangesProvider.findChangeLogEntries();
+
+		int modified = 0;
+		for (ChangeScript script : available) {
+			for (ChangeLogEntry entry : changeLogEntries) {
+				if (script.getId() == entry.getId() && !script.getChecksum().equals(entry.getChecksum())) {
+					modified++;
+				}
+			}
+		}
+
+		List<ChangeScript> toApply = new ArrayList<ChangeScript>();
+		for (ChangeScript script : available) {
+			if (!applied.contains(script.getId())) {
+				toApply.add(script);
+			}
+		}
+
+		PrettyPrinter prettyPrinter = new PrettyPrinter();
+		return modified + prettyPrinter.format(applied).length() + prettyPrinter.formatChangeScriptList(available).length()
+			+ prettyPrinter.formatChangeScriptList(toApply).length() + toApply.size();
+	}
+}
@@ -0,0 +1,67 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.DeploymentListenerAdapter;
+import com.dbdeploy.integration.SyntheticRepository;
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.DirectoryScanner;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Reading and checksumming a directory of change scripts, eagerly and lazily. The files are
+ * written once per trial, so later iterations read them from the page cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DirectoryScannerBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	public int scripts;
+
+	@Param({ "false", "true" })
+	public boolean lazyLoading;
+
+	@Param({ "1", "4" })
+	public int parallelism;
+
+	private File directory;
+
+	@Setup
+	public void writeScripts() throws IOException {
+		File tempFile = File.createTempFile("dbdeploy-benchmark", "");
+		tempFile.delete();
+		directory = new SyntheticRepository(scripts).writeTo(tempFile);
+	}
+
+	@TearDown
+	public void deleteScripts() {
+		SyntheticRepository.delete(directory);
+	}
+
+	@Benchmark
+	public List<ChangeScript> scan() {
+		DirectoryScanner directoryScanner = new DirectoryScanner("UTF-8");
+		directoryScanner.setLazyLoading(lazyLoading);
+		directoryScanner.setParallelism(parallelism);
+		directoryScanner.setListener(new DeploymentListenerAdapter());
+		return directoryScanner.getChangeScriptsForDirectory(directory);
+	}
+}
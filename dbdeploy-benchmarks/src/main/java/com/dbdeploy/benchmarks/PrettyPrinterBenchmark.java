@@ -0,0 +1,62 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.PrettyPrinter;
+import com.dbdeploy.integration.SyntheticRepository;
+import com.dbdeploy.scripts.ChangeScript;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Formatting the applied change numbers, with a gap every few of them, and the list of scripts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrettyPrinterBenchmark {
+	private static final int GAP_EVERY = 7;
+
+	@Param({ "1000", "10000", "100000" })
+	public int scripts;
+
+	private final PrettyPrinter prettyPrinter = new PrettyPrinter();
+	private List<Long> appliedChanges;
+	private List<ChangeScript> changeScripts;
+
+	@Setup
+	public void generateScripts() {
+		appliedChanges = new ArrayList<Long>(scripts);
+		for (long id = 1; id <= scripts; id++) {
+			if (id % GAP_EVERY != 0) {
+				appliedChanges.add(id);
+			}
+		}
+
+		changeScripts = new SyntheticRepository(scripts).createChangeScripts();
+	}
+
+	@Benchmark
+	public String format() {
+		return prettyPrinter.format(appliedChanges);
+	}
+
+	@Benchmark
+	public String formatChangeScriptList() {
+		return prettyPrinter.formatChangeScriptList(changeScripts);
+	}
+}
@@ -0,0 +1,58 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.database.DelimiterType;
+import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.integration.SyntheticRepository;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Splitting the content of all change scripts into statements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryStatementSplitterBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	public int scripts;
+
+	@Param({ "normal", "row" })
+	public DelimiterType delimiterType;
+
+	private String[] contents;
+	private QueryStatementSplitter splitter;
+
+	@Setup
+	public void generateContents() {
+		SyntheticRepository repository = new SyntheticRepository(scripts);
+		contents = new String[scripts];
+		for (int i = 0; i < scripts; i++) {
+			contents[i] = repository.doContent(i + 1);
+		}
+
+		splitter = new QueryStatementSplitter();
+		splitter.setDelimiterType(delimiterType);
+	}
+
+	@Benchmark
+	public void split(Blackhole blackhole) {
+		for (String content : contents) {
+			blackhole.consume(splitter.split(content));
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.appliers.TemplateBasedApplier;
+import com.dbdeploy.database.DelimiterType;
+import com.dbdeploy.integration.SyntheticRepository;
+import com.dbdeploy.scripts.ChangeScript;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Rendering the output file for all change scripts with the built-in templates, at once and
+ * one script at a time. The output is counted and discarded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateBasedApplierBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	public int scripts;
+
+	@Param({ "hsql", "ora" })
+	public String syntax;
+
+	@Param({ "false", "true" })
+	public boolean streaming;
+
+	private List<ChangeScript> changeScripts;
+
+	@Setup
+	public void generateScripts() {
+		changeScripts = new SyntheticRepository(scripts).createChangeScripts();
+	}
+
+	@Benchmark
+	public long render() throws IOException {
+		CountingWriter writer = new CountingWriter();
+		TemplateBasedApplier applier = new TemplateBasedApplier(writer, syntax, "changelog", ";",
+			DelimiterType.normal, null);
+		applier.setStreaming(streaming);
+		applier.apply(changeScripts);
+		return writer.characters;
+	}
+
+	private static class CountingWriter extends Writer {
+		private long characters;
+
+		@Override
+		public void write(char[] buffer, int offset, int length) {
+			characters += length;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
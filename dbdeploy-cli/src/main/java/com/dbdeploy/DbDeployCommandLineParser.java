@@ -3,6 +3,8 @@ package com.dbdeploy;
 import com.dbdeploy.database.LineEnding;
 import com.dbdeploy.exceptions.UsageException;
 import com.dbdeploy.database.DelimiterType;
+import com.dbdeploy.database.TransactionMode;
+import com.dbdeploy.scripts.ScriptIndex;
 import org.apache.commons.cli.*;
 
 import java.beans.BeanInfo;
@@ -42,7 +44,8 @@ public class DbDeployCommandLineParser {
 
 			for (PropertyDescriptor p : info.getPropertyDescriptors()) {
 				final String propertyName = p.getDisplayName();
-				if (commandLine.hasOption(propertyName)) {
+				final boolean textual = p.getPropertyType() == String.class || p.getPropertyType() == File.class;
+				if (textual && commandLine.hasOption(propertyName)) {
 					Object value = commandLine.getOptionValue(propertyName);
 					if (p.getPropertyType().isAssignableFrom(File.class)) {
 						value = new File((String) value);
@@ -60,6 +63,74 @@ public class DbDeployCommandLineParser {
 				dbDeploy.setLineEnding(LineEnding.valueOf(commandLine.getOptionValue("lineending")));
 			}
 
+			if (commandLine.hasOption("lazyloading")) {
+				dbDeploy.setLazyLoading(true);
+			}
+
+			if (commandLine.hasOption("scanparallelism")) {
+				dbDeploy.setScanParallelism(Integer.parseInt(commandLine.getOptionValue("scanparallelism")));
+			}
+
+			if (commandLine.hasOption("scriptindex")) {
+				dbDeploy.setScriptIndex(true);
+			}
+
+			if (commandLine.hasOption("batchsize")) {
+				dbDeploy.setBatchSize(Integer.parseInt(commandLine.getOptionValue("batchsize")));
+			}
+
+			if (commandLine.hasOption("streamoutput")) {
+				dbDeploy.setStreamOutput(true);
+			}
+
+			if (commandLine.hasOption("readahead")) {
+				dbDeploy.setReadAhead(true);
+			}
+
+			if (commandLine.hasOption("asynclogging")) {
+				dbDeploy.setAsyncLogging(true);
+			}
+
+			if (commandLine.hasOption("statementtimeout")) {
+				dbDeploy.setStatementTimeout(Integer.parseInt(commandLine.getOptionValue("statementtimeout")));
+			}
+
+			if (commandLine.hasOption("scripttimeout")) {
+				dbDeploy.setScriptTimeout(Integer.parseInt(commandLine.getOptionValue("scripttimeout")));
+			}
+
+			if (commandLine.hasOption("retries")) {
+				dbDeploy.setRetries(Integer.parseInt(commandLine.getOptionValue("retries")));
+			}
+
+			if (commandLine.hasOption("savepointinterval")) {
+				dbDeploy.setSavepointInterval(Integer.parseInt(commandLine.getOptionValue("savepointinterval")));
+			}
+
+			if (commandLine.hasOption("resumable")) {
+				dbDeploy.setResumable(true);
+			}
+
+			if (commandLine.hasOption("transactionmode")) {
+				dbDeploy.setTransactionMode(TransactionMode.valueOf(commandLine.getOptionValue("transactionmode")));
+			}
+
+			if (commandLine.hasOption("scriptspertransaction")) {
+				dbDeploy.setScriptsPerTransaction(Integer.parseInt(commandLine.getOptionValue("scriptspertransaction")));
+			}
+
+			if (commandLine.hasOption("targetparallelism")) {
+				dbDeploy.setTargetParallelism(Integer.parseInt(commandLine.getOptionValue("targetparallelism")));
+			}
+
+			if (commandLine.hasOption("slowstatements")) {
+				dbDeploy.setSlowStatements(Integer.parseInt(commandLine.getOptionValue("slowstatements")));
+			}
+
+			if (commandLine.hasOption("applyparallelism")) {
+				dbDeploy.setApplyParallelism(Integer.parseInt(commandLine.getOptionValue("applyparallelism")));
+			}
+
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -143,7 +214,7 @@ public class DbDeployCommandLineParser {
 
 		options.addOption(OptionBuilder
 				.hasArg()
-				.withDescription("delimiter type to separate sql statements (row or normal)")
+				.withDescription("delimiter type to separate sql statements (row, normal or sql)")
 				.withLongOpt("delimitertype")
 				.create());
 
@@ -153,6 +224,127 @@ public class DbDeployCommandLineParser {
 			    .withLongOpt("lineending")
 			    .create());
 
+		options.addOption(OptionBuilder
+				.withDescription("only read the content of change scripts that are going to be applied")
+				.withLongOpt("lazyloading")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of threads used to read change scripts (default: 1)")
+				.withLongOpt("scanparallelism")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("cache checksums of change scripts in " + ScriptIndex.FILENAME + " in the script directory")
+				.withLongOpt("scriptindex")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of consecutive insert, update, delete or merge statements " +
+						"sent to the database as one batch (default: 1)")
+				.withLongOpt("batchsize")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("render the output files one change script at a time and in a single pass, " +
+						"for templates that consist of the list of scripts only")
+				.withLongOpt("streamoutput")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("read and split the next change scripts on a separate thread " +
+						"while applying directly, e.g. for scripts on a network file system")
+				.withLongOpt("readahead")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("transaction boundary when applying directly (statement, script or run, default: script)")
+				.withLongOpt("transactionmode")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of change scripts committed together in transaction mode script (default: 1)")
+				.withLongOpt("scriptspertransaction")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("file listing the databases to apply the change scripts to, one per line as " +
+						"url [userid [password]], instead of --url")
+				.withLongOpt("targetsfile")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of databases from the targets file deployed to concurrently (default: 4)")
+				.withLongOpt("targetparallelism")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of connections used to apply change scripts with a --//@GROUP or " +
+						"--//@DEPENDS header concurrently (default: 1)")
+				.withLongOpt("applyparallelism")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of the slowest statements and change scripts to report " +
+						"at the end of the run (default: 0)")
+				.withLongOpt("slowstatements")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("file to write the timings of all statements and change scripts to, as JSON lines")
+				.withLongOpt("timingsfile")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("print the progress on a separate thread, so a slow console does not hold up " +
+						"applying the change scripts")
+				.withLongOpt("asynclogging")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("seconds a statement may run when applying directly before it is cancelled " +
+						"(default: 0, no limit)")
+				.withLongOpt("statementtimeout")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("seconds the statements of a change script may take together when applying " +
+						"directly (default: 0, no limit)")
+				.withLongOpt("scripttimeout")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of times a transaction is applied again after a deadlock, lock wait " +
+						"timeout or other transient failure (default: 0)")
+				.withLongOpt("retries")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of statements of a change script after which a savepoint is set when " +
+						"applying directly; transient failures are retried from the last savepoint (default: 0, none)")
+				.withLongOpt("savepointinterval")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("commit failed change scripts up to their last savepoint and record how far they " +
+						"got in the changelog table, so the next run continues there; requires --savepointinterval " +
+						"and one change script per transaction")
+				.withLongOpt("resumable")
+				.create());
+
 
 		return options;
 	}
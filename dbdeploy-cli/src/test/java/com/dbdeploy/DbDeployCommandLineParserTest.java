@@ -2,6 +2,7 @@ package com.dbdeploy;
 
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.database.LineEnding;
+import com.dbdeploy.database.TransactionMode;
 import org.junit.Test;
 
 import java.io.File;
@@ -77,6 +78,129 @@ public class DbDeployCommandLineParserTest {
 
 	}
 
+	@Test
+	public void lazyLoadingWorksOk() throws Exception {
+		assertThat(dbDeploy.isLazyLoading(), is(false));
+
+		parser.parse("--lazyloading".split(" "), dbDeploy);
+		assertThat(dbDeploy.isLazyLoading(), is(true));
+	}
+
+	@Test
+	public void scanParallelismWorksOk() throws Exception {
+		assertThat(dbDeploy.getScanParallelism(), is(1));
+
+		parser.parse("--scanparallelism 16".split(" "), dbDeploy);
+		assertThat(dbDeploy.getScanParallelism(), is(16));
+	}
+
+	@Test
+	public void scriptIndexWorksOk() throws Exception {
+		assertThat(dbDeploy.isScriptIndex(), is(false));
+
+		parser.parse("--scriptindex".split(" "), dbDeploy);
+		assertThat(dbDeploy.isScriptIndex(), is(true));
+	}
+
+	@Test
+	public void batchSizeWorksOk() throws Exception {
+		assertThat(dbDeploy.getBatchSize(), is(1));
+
+		parser.parse("--batchsize 100".split(" "), dbDeploy);
+		assertThat(dbDeploy.getBatchSize(), is(100));
+	}
+
+	@Test
+	public void streamOutputWorksOk() throws Exception {
+		assertThat(dbDeploy.isStreamOutput(), is(false));
+
+		parser.parse("--streamoutput".split(" "), dbDeploy);
+		assertThat(dbDeploy.isStreamOutput(), is(true));
+	}
+
+	@Test
+	public void readAheadWorksOk() throws Exception {
+		assertThat(dbDeploy.isReadAhead(), is(false));
+
+		parser.parse("--readahead".split(" "), dbDeploy);
+		assertThat(dbDeploy.isReadAhead(), is(true));
+	}
+
+	@Test
+	public void transactionModeWorksOk() throws Exception {
+		assertThat(dbDeploy.getTransactionMode(), is(TransactionMode.script));
+		assertThat(dbDeploy.getScriptsPerTransaction(), is(1));
+
+		parser.parse("--transactionmode run".split(" "), dbDeploy);
+		assertThat(dbDeploy.getTransactionMode(), is(TransactionMode.run));
+
+		parser.parse("--transactionmode script --scriptspertransaction 50".split(" "), dbDeploy);
+		assertThat(dbDeploy.getTransactionMode(), is(TransactionMode.script));
+		assertThat(dbDeploy.getScriptsPerTransaction(), is(50));
+	}
+
+	@Test
+	public void targetsFileWorksOk() throws Exception {
+		assertThat(dbDeploy.getTargetParallelism(), is(4));
+
+		parser.parse("--targetsfile targets.txt --targetparallelism 8".split(" "), dbDeploy);
+		assertThat(dbDeploy.getTargetsfile().getName(), is("targets.txt"));
+		assertThat(dbDeploy.getTargetParallelism(), is(8));
+	}
+
+	@Test
+	public void applyParallelismWorksOk() throws Exception {
+		assertThat(dbDeploy.getApplyParallelism(), is(1));
+
+		parser.parse("--applyparallelism 4".split(" "), dbDeploy);
+		assertThat(dbDeploy.getApplyParallelism(), is(4));
+	}
+
+	@Test
+	public void timingsWorkOk() throws Exception {
+		assertThat(dbDeploy.getSlowStatements(), is(0));
+
+		parser.parse("--slowstatements 20 --timingsfile timings.jsonl".split(" "), dbDeploy);
+		assertThat(dbDeploy.getSlowStatements(), is(20));
+		assertThat(dbDeploy.getTimingsfile().getName(), is("timings.jsonl"));
+	}
+
+	@Test
+	public void asyncLoggingWorksOk() throws Exception {
+		assertThat(dbDeploy.isAsyncLogging(), is(false));
+
+		parser.parse("--asynclogging".split(" "), dbDeploy);
+		assertThat(dbDeploy.isAsyncLogging(), is(true));
+	}
+
+	@Test
+	public void timeoutsWorkOk() throws Exception {
+		assertThat(dbDeploy.getStatementTimeout(), is(0));
+		assertThat(dbDeploy.getScriptTimeout(), is(0));
+
+		parser.parse("--statementtimeout 30 --scripttimeout 600".split(" "), dbDeploy);
+		assertThat(dbDeploy.getStatementTimeout(), is(30));
+		assertThat(dbDeploy.getScriptTimeout(), is(600));
+	}
+
+	@Test
+	public void retriesWorkOk() throws Exception {
+		assertThat(dbDeploy.getRetries(), is(0));
+
+		parser.parse("--retries 3".split(" "), dbDeploy);
+		assertThat(dbDeploy.getRetries(), is(3));
+	}
+
+	@Test
+	public void resumableModeWorksOk() throws Exception {
+		assertThat(dbDeploy.getSavepointInterval(), is(0));
+		assertThat(dbDeploy.isResumable(), is(false));
+
+		parser.parse("--savepointinterval 1000 --resumable".split(" "), dbDeploy);
+		assertThat(dbDeploy.getSavepointInterval(), is(1000));
+		assertThat(dbDeploy.isResumable(), is(true));
+	}
+
     @Test
     public void shouldPromptFromStdinForPasswordIfPasswordParamSuppliedWithNoArg() throws Exception {
         when(userInputReader.read("Password")).thenReturn("user entered password");
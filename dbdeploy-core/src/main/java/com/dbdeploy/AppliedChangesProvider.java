@@ -2,10 +2,16 @@ package com.dbdeploy;
 
 import java.util.List;
 
+import com.dbdeploy.database.changelog.AppliedChanges;
 import com.dbdeploy.database.changelog.ChangeLogEntry;
 
 public interface AppliedChangesProvider {
 	List<Long> findChangeLogEntryIds();
 	
 	List<ChangeLogEntry> findChangeLogEntries();
+
+	/**
+	 * only ids and checksums, which is all that is needed to plan a deployment
+	 */
+	AppliedChanges findAppliedChanges();
 }
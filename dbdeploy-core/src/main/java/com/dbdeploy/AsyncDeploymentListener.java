@@ -0,0 +1,151 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.Script;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+
+/**
+ * Passes the events on to another listener on a separate thread, so slow output, e.g. to a
+ * console or a remote log, does not hold up applying the change scripts.
+ *
+ * Events are buffered in a bounded queue; when it is full, the deployment waits. The events
+ * are delivered in order, and {@link #runFinished} returns once all of them have been delivered.
+ * Events after that are delivered on the calling thread.
+ */
+public class AsyncDeploymentListener implements DeploymentListener {
+	private static final int DEFAULT_CAPACITY = 10000;
+	private static final Runnable STOP = new Runnable() {
+		public void run() {
+		}
+	};
+
+	private final DeploymentListener delegate;
+	private final BlockingQueue<Runnable> events;
+	private final Thread worker;
+	private volatile boolean finished;
+
+	public AsyncDeploymentListener(DeploymentListener delegate) {
+		this(delegate, DEFAULT_CAPACITY);
+	}
+
+	public AsyncDeploymentListener(DeploymentListener delegate, int capacity) {
+		this.delegate = delegate;
+		this.events = new LinkedBlockingQueue<Runnable>(capacity);
+		this.worker = new Thread(new Runnable() {
+			public void run() {
+				deliver();
+			}
+		}, "dbdeploy-listener");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	public void info(final String message) {
+		enqueue(new Runnable() {
+			public void run() {
+				delegate.info(message);
+			}
+		});
+	}
+
+	public void scriptStarted(final Script script) {
+		enqueue(new Runnable() {
+			public void run() {
+				delegate.scriptStarted(script);
+			}
+		});
+	}
+
+	public void statementExecuted(final Script script, final int statement, final String sql, final long nanos,
+								  final int[] updateCounts) {
+		enqueue(new Runnable() {
+			public void run() {
+				delegate.statementExecuted(script, statement, sql, nanos, updateCounts);
+			}
+		});
+	}
+
+	public void scriptCommitted(final ChangeScript script) {
+		enqueue(new Runnable() {
+			public void run() {
+				delegate.scriptCommitted(script);
+			}
+		});
+	}
+
+	public void phaseFinished(final DeploymentPhase phase, final long nanos) {
+		enqueue(new Runnable() {
+			public void run() {
+				delegate.phaseFinished(phase, nanos);
+			}
+		});
+	}
+
+	/**
+	 * waits until all events have been delivered
+	 */
+	public synchronized void runFinished(final int appliedScripts, final Throwable failure) {
+		if (finished) {
+			delegate.runFinished(appliedScripts, failure);
+			return;
+		}
+
+		enqueue(new Runnable() {
+			public void run() {
+				delegate.runFinished(appliedScripts, failure);
+			}
+		});
+		enqueue(STOP);
+		finished = true;
+
+		try {
+			worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// events enqueued by other threads while the run finished
+		for (Runnable event = events.poll(); event != null; event = events.poll()) {
+			if (event != STOP) {
+				event.run();
+			}
+		}
+	}
+
+	private void enqueue(Runnable event) {
+		if (finished) {
+			event.run();
+			return;
+		}
+
+		try {
+			events.put(event);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			event.run();
+		}
+	}
+
+	private void deliver() {
+		for (;;) {
+			Runnable event;
+			try {
+				event = events.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			if (event == STOP) {
+				return;
+			}
+
+			try {
+				event.run();
+			} catch (RuntimeException e) {
+				System.err.println("Deployment listener failed: " + e);
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.Script;
+import java.io.PrintStream;
+
+
+/**
+ * Prints the progress of a deployment, by default to standard error. A prefix tells apart the
+ * lines of targets deployed to concurrently.
+ */
+public class ConsoleDeploymentListener extends DeploymentListenerAdapter {
+	private final PrintStream out;
+	private final String prefix;
+
+	public ConsoleDeploymentListener() {
+		this(System.err);
+	}
+
+	public ConsoleDeploymentListener(PrintStream out) {
+		this(out, "");
+	}
+
+	/**
+	 * @param prefix put in front of every line printed
+	 */
+	public ConsoleDeploymentListener(PrintStream out, String prefix) {
+		this.out = out;
+		this.prefix = prefix;
+	}
+
+	@Override
+	public void info(String message) {
+		println(message);
+	}
+
+	@Override
+	public void scriptStarted(Script script) {
+		println("Applying " + script + "...");
+	}
+
+	@Override
+	public void statementExecuted(Script script, int statement, String sql, long nanos, int[] updateCounts) {
+		String statements = updateCounts.length > 1
+			? "statements " + statement + " to " + (statement + updateCounts.length - 1)
+			: "statement " + statement;
+		println(" -> " + statements + " (" + nanos / 1000000 + " ms)");
+	}
+
+	@Override
+	public void runFinished(int appliedScripts, Throwable failure) {
+		out.flush();
+	}
+
+	private void println(String line) {
+		out.println(prefix.length() == 0 ? line : prefix + line.replace("\n", "\n" + prefix));
+	}
+}
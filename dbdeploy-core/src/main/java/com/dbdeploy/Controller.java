@@ -5,7 +5,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import com.dbdeploy.database.changelog.ChangeLogEntry;
+import com.dbdeploy.database.changelog.AppliedChanges;
 import com.dbdeploy.exceptions.DbDeployException;
 import com.dbdeploy.scripts.ChangeScript;
 
@@ -17,6 +17,7 @@ public class Controller {
 	private final ChangeScriptApplier undoScriptApplier;
 
 	private final PrettyPrinter prettyPrinter = new PrettyPrinter();
+	private DeploymentListener listener = new ConsoleDeploymentListener();
 
 	public Controller(AvailableChangeScriptsProvider availableChangeScriptsProvider,
 					  AppliedChangesProvider appliedChangesProvider,
@@ -27,21 +28,35 @@ public class Controller {
 		this.undoScriptApplier = undoScriptApplier;
 	}
 
-	public void processChangeScripts(Long lastChangeToApply) throws DbDeployException, IOException {
+	/**
+	 * receives the progress, by default printed to the console
+	 */
+	public void setListener(DeploymentListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return the number of change scripts applied
+	 */
+	public int processChangeScripts(Long lastChangeToApply) throws DbDeployException, IOException {
 		if (lastChangeToApply != Long.MAX_VALUE) {
 			info("Only applying changes up and including change script #" + lastChangeToApply);
 		}
 		
 		final List<ChangeScript> scripts = availableChangeScriptsProvider.getAvailableChangeScripts();
-		final List<Long> applied = appliedChangesProvider.findChangeLogEntryIds();
+
+		long start = System.nanoTime();
+		final AppliedChanges applied = appliedChangesProvider.findAppliedChanges();
+		start = phaseFinished(DeploymentPhase.changelog, start);
 		
-		final List<ChangeLogEntry> changeLogEntries = appliedChangesProvider.findChangeLogEntries();
-		validateChecksums(scripts, changeLogEntries);	
+		validateChecksums(scripts, applied);	
 		
 		final List<ChangeScript> toApply = identifyChangesToApply(lastChangeToApply, scripts, applied);
+		start = phaseFinished(DeploymentPhase.plan, start);
 
-		logStatus(scripts, applied, toApply);
+		logStatus(scripts, applied.getIds(), toApply);
 
+		start = System.nanoTime();
         changeScriptApplier.apply(Collections.unmodifiableList(toApply));
 
         if (undoScriptApplier != null) {
@@ -49,22 +64,41 @@ public class Controller {
 			Collections.reverse(toApply);
             undoScriptApplier.apply(Collections.unmodifiableList(toApply));
         }
+		phaseFinished(DeploymentPhase.apply, start);
+
+		return toApply.size();
 	}
 
-	private void validateChecksums(final List<ChangeScript> scripts, List<ChangeLogEntry> changeLogEntries) {
-		System.out.println("Validating checksums ... ");
+	/**
+	 * @return the end of the phase, i.e. the start of the next one
+	 */
+	private long phaseFinished(DeploymentPhase phase, long start) {
+		long end = System.nanoTime();
+		listener.phaseFinished(phase, end - start);
+		return end;
+	}
+
+	/**
+	 * scripts and applied changes are both ordered by id, so a single merge finds all pairs
+	 */
+	private void validateChecksums(final List<ChangeScript> scripts, final AppliedChanges applied) {
+		info("Validating checksums ... ");
 		final List<ChangeScript> modifiedChangeScripts = new ArrayList<ChangeScript>();
+		int appliedIndex = 0;
 		
 		for (final ChangeScript script: scripts) {
-			for (final ChangeLogEntry entry: changeLogEntries) {
-				if (script.getId() == entry.getId()) {
-					if (!script.getChecksum().equals(entry.getChecksum())) {
-						info("Invalid checksum for script " + script + ".");
-						modifiedChangeScripts.add(script);
-					}
-					
-					continue;
-				}
+			while (appliedIndex < applied.size() && applied.getId(appliedIndex) < script.getId()) {
+				appliedIndex++;
+			}
+
+			if (appliedIndex == applied.size()) {
+				break;
+			}
+
+			if (applied.getId(appliedIndex) == script.getId()
+					&& !script.getChecksum().equals(applied.getChecksum(appliedIndex))) {
+				info("Invalid checksum for script " + script + ".");
+				modifiedChangeScripts.add(script);
 			}
 		}
 		
@@ -79,14 +113,23 @@ public class Controller {
 		info("To be applied:\n  " + prettyPrinter.formatChangeScriptList(toApply));
 	}
 
-	private List<ChangeScript> identifyChangesToApply(Long lastChangeToApply, List<ChangeScript> scripts, List<Long> applied) {
+	/**
+	 * scripts and applied changes are both ordered by id, so a single merge
+	 * finds the scripts not applied yet
+	 */
+	private List<ChangeScript> identifyChangesToApply(Long lastChangeToApply, List<ChangeScript> scripts, AppliedChanges applied) {
 		List<ChangeScript> result = new ArrayList<ChangeScript>();
+		int appliedIndex = 0;
 
 		for (ChangeScript script : scripts) {
 			if (script.getId() > lastChangeToApply)
 				break;
 
-			if (!applied.contains(script.getId())) {
+			while (appliedIndex < applied.size() && applied.getId(appliedIndex) < script.getId()) {
+				appliedIndex++;
+			}
+
+			if (appliedIndex == applied.size() || applied.getId(appliedIndex) != script.getId()) {
 				result.add(script);
 			}
 		}
@@ -95,6 +138,6 @@ public class Controller {
 	}
 
 	private void info(String string) {
-		System.err.println(string);
+		listener.info(string);
 	}
 }
\ No newline at end of file
@@ -1,22 +1,38 @@
 package com.dbdeploy;
 
+import com.dbdeploy.appliers.CombinedTemplateBasedApplier;
+import com.dbdeploy.appliers.DeploymentStatistics;
 import com.dbdeploy.appliers.DirectToDbApplier;
+import com.dbdeploy.appliers.ParallelDirectToDbApplier;
+import com.dbdeploy.appliers.RetryPolicy;
 import com.dbdeploy.appliers.TemplateBasedApplier;
 import com.dbdeploy.appliers.UndoTemplateBasedApplier;
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.database.LineEnding;
+import com.dbdeploy.database.TransactionMode;
 import com.dbdeploy.database.QueryStatementSplitter;
 import com.dbdeploy.database.changelog.DatabaseSchemaVersionManager;
 import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.exceptions.DbDeployException;
 import com.dbdeploy.exceptions.UsageException;
 import com.dbdeploy.scripts.ChangeScriptRepository;
 import com.dbdeploy.scripts.DirectoryScanner;
 import com.dbdeploy.scripts.Script;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
 
 
 public class DbDeploy {
+	private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
 	private String url;
 	private String userid;
 	private String password;
@@ -32,6 +48,28 @@ public class DbDeploy {
 	private String delimiter = ";";
 	private DelimiterType delimiterType = DelimiterType.normal;
 	private File templatedir;
+	private boolean lazyLoading;
+	private int scanParallelism = 1;
+	private boolean scriptIndex;
+	private int batchSize = 1;
+	private TransactionMode transactionMode = TransactionMode.script;
+	private int scriptsPerTransaction = 1;
+	private boolean streamOutput;
+	private File targetsfile;
+	private int targetParallelism = 4;
+	private int applyParallelism = 1;
+	private boolean readAhead;
+	private DataSource dataSource;
+	private int slowStatements;
+	private File timingsfile;
+	private boolean asyncLogging;
+	private int statementTimeout;
+	private int scriptTimeout;
+	private int retries;
+	private int savepointInterval;
+	private boolean resumable;
+	private final List<DeploymentListener> listeners = new ArrayList<DeploymentListener>();
+	private DeploymentListener listener = new ConsoleDeploymentListener();
 
 	private File preScriptExecutionFile;
 	private File postScriptExecutionFile;
@@ -89,48 +127,235 @@ public class DbDeploy {
 
 		validate();
 
-		Class.forName(driver);
+		if (driver != null) {
+			Class.forName(driver);
+		}
 
-		QueryExecuter queryExecuter = new QueryExecuter(url, userid, password);
+		DeploymentStatistics statistics = createStatistics();
+		listener = createListener(createConsoleListener(""), statistics);
+		if (statistics != null) {
+			statistics.setListener(listener);
+		}
 
-		DatabaseSchemaVersionManager databaseSchemaVersionManager = new DatabaseSchemaVersionManager(queryExecuter,
-			changeLogTableName);
+		int appliedScripts = 0;
+		Throwable failure = null;
+		try {
+			if (targetsfile != null) {
+				appliedScripts = goFanOut(statistics);
+			} else {
+				appliedScripts = deploy(scanScriptDirectory(), url, userid, password, listener);
+			}
+		} catch (Exception e) {
+			failure = e;
+			throw e;
+		} catch (Error e) {
+			failure = e;
+			throw e;
+		} finally {
+			if (statistics != null && statistics.report() != null) {
+				listener.info(statistics.report());
+			}
+			listener.runFinished(appliedScripts, failure);
+			listener = new ConsoleDeploymentListener();
+		}
+	}
 
-		ChangeScriptRepository changeScriptRepository = new ChangeScriptRepository(new DirectoryScanner(encoding)
-			.getChangeScriptsForDirectory(scriptdirectory));
+	/**
+	 * the console output, the statistics if enabled and the listeners added
+	 */
+	private DeploymentListener createListener(DeploymentListener console, DeploymentListener statistics) {
+		List<DeploymentListener> all = new ArrayList<DeploymentListener>();
+		all.add(console);
+		if (statistics != null) {
+			all.add(statistics);
+		}
+		all.addAll(listeners);
+		return new DeploymentListeners(all);
+	}
 
-		ChangeScriptApplier doScriptApplier;
+	/**
+	 * @param prefix put in front of every line, to tell the targets of a fan-out deployment apart
+	 */
+	private DeploymentListener createConsoleListener(String prefix) {
+		ConsoleDeploymentListener console = new ConsoleDeploymentListener(System.err, prefix);
+		return asyncLogging ? new AsyncDeploymentListener(console) : console;
+	}
 
-		if (outputfile != null) {
-			doScriptApplier = new TemplateBasedApplier(
-				new PrintWriter(outputfile, encoding), dbms,
-				changeLogTableName, delimiter, delimiterType, getTemplatedir());
-		} else {
-			QueryStatementSplitter splitter = new QueryStatementSplitter();
-			splitter.setDelimiter(getDelimiter());
-			splitter.setDelimiterType(getDelimiterType());
-			splitter.setOutputLineEnding(lineEnding);
+	private DeploymentStatistics createStatistics() {
+		if (slowStatements == 0 && timingsfile == null) {
+			return null;
+		}
+
+		DeploymentStatistics deploymentStatistics = new DeploymentStatistics(slowStatements);
+		if (timingsfile != null) {
+			deploymentStatistics.writeJsonLinesTo(timingsfile);
+		}
+		return deploymentStatistics;
+	}
+
+	/**
+	 * scans the script directory once and deploys to all targets, {@link #targetParallelism} at a time
+	 */
+	private int goFanOut(final DeploymentStatistics statistics) throws Exception {
+		final ChangeScriptRepository changeScriptRepository = scanScriptDirectory();
+		final List<DeploymentTarget> targets = DeploymentTarget.read(targetsfile, encoding, userid, password);
+
+		listener.info("Deploying to " + targets.size() + " targets, " + targetParallelism + " at a time...");
+
+		FanOutDeployment deployment = new FanOutDeployment(new FanOutDeployment.TargetDeployer() {
+			public int deploy(DeploymentTarget target) throws Exception {
+				DeploymentListener console = createConsoleListener("[" + target + "] ");
+				try {
+					return DbDeploy.this.deploy(changeScriptRepository, target.getUrl(), target.getUserid(),
+						target.getPassword(), createListener(console,
+							statistics != null ? statistics.forTarget(target.toString()) : null));
+				} finally {
+					// only flushes the output of this target, the run is not over yet
+					console.runFinished(0, null);
+				}
+			}
+		}, targetParallelism);
+
+		List<DeploymentResult> results = deployment.deploy(targets);
+
+		int failed = 0;
+		int appliedScripts = 0;
+		StringBuilder summary = new StringBuilder("Deployment summary:");
+		for (DeploymentResult result : results) {
+			summary.append("\n  ").append(result);
+			if (result.isSuccessful()) {
+				appliedScripts += result.getAppliedChangeScripts();
+			} else {
+				failed++;
+			}
+		}
+		listener.info(summary.toString());
 
-			DirectToDbApplier directToDbApplier = new DirectToDbApplier(queryExecuter, databaseSchemaVersionManager,
-				splitter);
-			addPrePostScriptIfSet(directToDbApplier);
-			doScriptApplier = directToDbApplier;
+		if (failed > 0) {
+			throw new DbDeployException("Deployment failed for " + failed + " of " + results.size() + " targets");
+		}
+		return appliedScripts;
+	}
+
+	private ChangeScriptRepository scanScriptDirectory() {
+		DirectoryScanner directoryScanner = new DirectoryScanner(encoding);
+		directoryScanner.setLazyLoading(lazyLoading || (streamOutput && outputfile != null));
+		directoryScanner.setParallelism(scanParallelism);
+		directoryScanner.setUseScriptIndex(scriptIndex);
+		directoryScanner.setListener(listener);
+
+		return new ChangeScriptRepository(directoryScanner.getChangeScriptsForDirectory(scriptdirectory));
+	}
+
+	/**
+	 * @return the number of change scripts applied
+	 */
+	private int deploy(ChangeScriptRepository changeScriptRepository, String url, String userid, String password,
+		DeploymentListener listener) throws Exception {
+		List<QueryExecuter> queryExecuters = new ArrayList<QueryExecuter>();
+		try {
+			queryExecuters.add(openQueryExecuter(url, userid, password));
+
+			if (outputfile == null) {
+				for (int i = 1; i < applyParallelism; i++) {
+					queryExecuters.add(openQueryExecuter(url, userid, password));
+				}
+			}
+
+			return deploy(changeScriptRepository, queryExecuters, listener);
+		} finally {
+			for (QueryExecuter queryExecuter : queryExecuters) {
+				queryExecuter.close();
+			}
 		}
+	}
 
+	private QueryExecuter openQueryExecuter(String url, String userid, String password) throws SQLException {
+		if (dataSource != null) {
+			return new QueryExecuter(dataSource, userid);
+		}
+		return new QueryExecuter(url, userid, password);
+	}
+
+	/**
+	 * @param queryExecuters the first one is used for the changelog, the others only for
+	 * applying change scripts concurrently
+	 */
+	private int deploy(ChangeScriptRepository changeScriptRepository, List<QueryExecuter> queryExecuters,
+		DeploymentListener listener) throws Exception {
+		QueryExecuter queryExecuter = queryExecuters.get(0);
+		DatabaseSchemaVersionManager databaseSchemaVersionManager = new DatabaseSchemaVersionManager(queryExecuter,
+			changeLogTableName);
+		databaseSchemaVersionManager.setRecordsProgress(resumable);
+
+		ChangeScriptApplier doScriptApplier;
 		ChangeScriptApplier undoScriptApplier = null;
+		boolean singlePassOutput = outputfile != null && undoOutputfile != null && streamOutput;
 
-		if (undoOutputfile != null) {
-			undoScriptApplier = new UndoTemplateBasedApplier(
-				new PrintWriter(undoOutputfile), dbms, changeLogTableName, delimiter, delimiterType, templatedir);
+		if (singlePassOutput) {
+			doScriptApplier = new CombinedTemplateBasedApplier(
+				createOutputWriter(outputfile), createOutputWriter(undoOutputfile), dbms,
+				changeLogTableName, delimiter, delimiterType, getTemplatedir());
+		} else if (outputfile != null) {
+			TemplateBasedApplier templateBasedApplier = new TemplateBasedApplier(
+				createOutputWriter(outputfile), dbms,
+				changeLogTableName, delimiter, delimiterType, getTemplatedir());
+			templateBasedApplier.setStreaming(streamOutput);
+			doScriptApplier = templateBasedApplier;
+		} else if (queryExecuters.size() == 1) {
+			doScriptApplier = createDirectToDbApplier(queryExecuter, databaseSchemaVersionManager, listener);
+		} else {
+			List<DirectToDbApplier> directToDbAppliers = new ArrayList<DirectToDbApplier>();
+			directToDbAppliers.add(createDirectToDbApplier(queryExecuter, databaseSchemaVersionManager, listener));
+			for (QueryExecuter other : queryExecuters.subList(1, queryExecuters.size())) {
+				DatabaseSchemaVersionManager otherSchemaVersionManager = new DatabaseSchemaVersionManager(other,
+					changeLogTableName);
+				otherSchemaVersionManager.setRecordsProgress(resumable);
+				directToDbAppliers.add(createDirectToDbApplier(other, otherSchemaVersionManager, listener));
+			}
+			doScriptApplier = new ParallelDirectToDbApplier(directToDbAppliers, databaseSchemaVersionManager);
+		}
 
+		if (undoOutputfile != null && !singlePassOutput) {
+			UndoTemplateBasedApplier undoTemplateBasedApplier = new UndoTemplateBasedApplier(
+				createOutputWriter(undoOutputfile), dbms, changeLogTableName, delimiter, delimiterType, templatedir);
+			undoTemplateBasedApplier.setStreaming(streamOutput);
+			undoScriptApplier = undoTemplateBasedApplier;
 		}
 
 		Controller controller = new Controller(changeScriptRepository, databaseSchemaVersionManager, doScriptApplier,
 			undoScriptApplier);
+		controller.setListener(listener);
 
-		controller.processChangeScripts(lastChangeToApply);
+		return controller.processChangeScripts(lastChangeToApply);
+	}
+
+	private DirectToDbApplier createDirectToDbApplier(QueryExecuter queryExecuter,
+			DatabaseSchemaVersionManager databaseSchemaVersionManager, DeploymentListener listener) {
+		QueryStatementSplitter splitter = new QueryStatementSplitter();
+		splitter.setDelimiter(getDelimiter());
+		splitter.setDelimiterType(getDelimiterType());
+		splitter.setOutputLineEnding(lineEnding);
 
-		queryExecuter.close();
+		DirectToDbApplier directToDbApplier = new DirectToDbApplier(queryExecuter, databaseSchemaVersionManager,
+			splitter);
+		directToDbApplier.setBatchSize(batchSize);
+		directToDbApplier.setTransactionMode(transactionMode);
+		directToDbApplier.setScriptsPerTransaction(scriptsPerTransaction);
+		directToDbApplier.setReadAhead(readAhead);
+		directToDbApplier.setStatementTimeout(statementTimeout);
+		directToDbApplier.setScriptTimeout(scriptTimeout);
+		directToDbApplier.setRetryPolicy(new RetryPolicy(retries, dbms));
+		directToDbApplier.setSavepointInterval(savepointInterval);
+		directToDbApplier.setResumable(resumable);
+		directToDbApplier.setListener(listener);
+		addPrePostScriptIfSet(directToDbApplier);
+		return directToDbApplier;
+	}
+
+	private PrintWriter createOutputWriter(File file) throws IOException {
+		return new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), encoding),
+			OUTPUT_BUFFER_SIZE));
 	}
 
 	private void addPrePostScriptIfSet(DirectToDbApplier directToDbApplier) {
@@ -143,17 +368,98 @@ public class DbDeploy {
 	}
 
 	private void validate() throws UsageException {
-		checkForRequiredParameter(userid, "userid");
-		checkForRequiredParameter(driver, "driver");
-		checkForRequiredParameter(url, "url");
 		checkForRequiredParameter(scriptdirectory, "dir");
 
+		if (dataSource != null) {
+			if (targetsfile != null) {
+				throw new UsageException("A targets file cannot be used together with a data source");
+			}
+		} else if (targetsfile == null) {
+			checkForRequiredParameter(driver, "driver");
+			checkForRequiredParameter(userid, "userid");
+			checkForRequiredParameter(url, "url");
+		} else {
+			checkForRequiredParameter(driver, "driver");
+			checkTargets();
+		}
+
 		checkScriptFile(preScriptExecutionFile, "pre");
 		checkScriptFile(postScriptExecutionFile, "post");
 
 		if ((scriptdirectory == null) || !scriptdirectory.isDirectory()) {
 			throw new UsageException("Script directory must point to a valid directory");
 		}
+
+		if (scanParallelism < 1) {
+			throw new UsageException("scanParallelism must be at least 1");
+		}
+
+		if (batchSize < 1) {
+			throw new UsageException("batchSize must be at least 1");
+		}
+
+		if (scriptsPerTransaction < 1) {
+			throw new UsageException("scriptsPerTransaction must be at least 1");
+		}
+
+		if (slowStatements < 0) {
+			throw new UsageException("slowStatements cannot be negative");
+		}
+
+		if (statementTimeout < 0 || scriptTimeout < 0) {
+			throw new UsageException("Timeouts cannot be negative");
+		}
+
+		if (retries < 0) {
+			throw new UsageException("retries cannot be negative");
+		}
+
+		checkSavepoints();
+
+		if (applyParallelism < 1) {
+			throw new UsageException("applyParallelism must be at least 1");
+		}
+
+		if (applyParallelism > 1 && transactionMode == TransactionMode.run) {
+			throw new UsageException("Change scripts cannot be applied concurrently in transaction mode run");
+		}
+	}
+
+	private void checkTargets() {
+		if (!targetsfile.isFile()) {
+			throw new UsageException("Targets file " + targetsfile.getAbsolutePath() + " must exist if set");
+		}
+
+		if (outputfile != null || undoOutputfile != null) {
+			throw new UsageException("A targets file can only be used when applying directly to the databases");
+		}
+
+		if (targetParallelism < 1) {
+			throw new UsageException("targetParallelism must be at least 1");
+		}
+	}
+
+	private void checkSavepoints() {
+		if (savepointInterval < 0) {
+			throw new UsageException("savepointInterval cannot be negative");
+		}
+
+		if (savepointInterval > 0 && transactionMode == TransactionMode.statement) {
+			throw new UsageException("Savepoints cannot be set in transaction mode statement");
+		}
+
+		if (!resumable) {
+			return;
+		}
+
+		if (savepointInterval == 0) {
+			throw new UsageException("Change scripts can only be resumed together with a savepoint interval");
+		}
+
+		if (transactionMode != TransactionMode.script || scriptsPerTransaction != 1) {
+			throw new UsageException("Change scripts can only be resumed in transaction mode script with one "
+				+ "change script per transaction, since only the failed one is recorded as partially applied");
+		}
 	}
 
 	private void checkScriptFile(File scriptExecutionFile, String prefix) {
@@ -253,6 +559,218 @@ public class DbDeploy {
 		return lineEnding;
 	}
 
+	public boolean isLazyLoading() {
+		return lazyLoading;
+	}
+
+	public void setLazyLoading(boolean lazyLoading) {
+		this.lazyLoading = lazyLoading;
+	}
+
+	public int getScanParallelism() {
+		return scanParallelism;
+	}
+
+	public void setScanParallelism(int scanParallelism) {
+		this.scanParallelism = scanParallelism;
+	}
+
+	public boolean isScriptIndex() {
+		return scriptIndex;
+	}
+
+	public void setScriptIndex(boolean scriptIndex) {
+		this.scriptIndex = scriptIndex;
+	}
+
+	public boolean isStreamOutput() {
+		return streamOutput;
+	}
+
+	public void setStreamOutput(boolean streamOutput) {
+		this.streamOutput = streamOutput;
+	}
+
+	public File getTargetsfile() {
+		return targetsfile;
+	}
+
+	/**
+	 * deploy to the databases listed in this file instead of url, see {@link DeploymentTarget#read}
+	 */
+	public void setTargetsfile(File targetsfile) {
+		this.targetsfile = targetsfile;
+	}
+
+	public int getTargetParallelism() {
+		return targetParallelism;
+	}
+
+	public void setTargetParallelism(int targetParallelism) {
+		this.targetParallelism = targetParallelism;
+	}
+
+	public int getSlowStatements() {
+		return slowStatements;
+	}
+
+	/**
+	 * number of the slowest statements and change scripts reported at the end of the run, default 0
+	 */
+	public void setSlowStatements(int slowStatements) {
+		this.slowStatements = slowStatements;
+	}
+
+	public File getTimingsfile() {
+		return timingsfile;
+	}
+
+	/**
+	 * file the timings of all statements and change scripts applied directly are written to, as JSON lines
+	 */
+	public void setTimingsfile(File timingsfile) {
+		this.timingsfile = timingsfile;
+	}
+
+	public int getStatementTimeout() {
+		return statementTimeout;
+	}
+
+	/**
+	 * seconds a statement may run when applying directly before it is cancelled, default 0 (no limit)
+	 */
+	public void setStatementTimeout(int statementTimeout) {
+		this.statementTimeout = statementTimeout;
+	}
+
+	public int getScriptTimeout() {
+		return scriptTimeout;
+	}
+
+	/**
+	 * seconds the statements of a change script may take together when applying directly, default 0 (no limit)
+	 */
+	public void setScriptTimeout(int scriptTimeout) {
+		this.scriptTimeout = scriptTimeout;
+	}
+
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * number of times a transaction is applied again after a deadlock, lock wait timeout or
+	 * other transient failure when applying directly, default 0, see {@link RetryPolicy}; the
+	 * vendor error codes recognised depend on the dbms
+	 */
+	public void setRetries(int retries) {
+		this.retries = retries;
+	}
+
+	public int getSavepointInterval() {
+		return savepointInterval;
+	}
+
+	/**
+	 * number of statements of a change script after which a savepoint is set when applying
+	 * directly, default 0 (none); transient failures are retried from the last savepoint
+	 */
+	public void setSavepointInterval(int savepointInterval) {
+		this.savepointInterval = savepointInterval;
+	}
+
+	public boolean isResumable() {
+		return resumable;
+	}
+
+	/**
+	 * commit failed change scripts up to their last savepoint and record how far they got in the
+	 * completed_statements and statements_digest columns of the changelog table, so the next run
+	 * continues after them
+	 */
+	public void setResumable(boolean resumable) {
+		this.resumable = resumable;
+	}
+
+	public boolean isAsyncLogging() {
+		return asyncLogging;
+	}
+
+	/**
+	 * print the progress on a separate thread, so a slow console does not hold up applying
+	 */
+	public void setAsyncLogging(boolean asyncLogging) {
+		this.asyncLogging = asyncLogging;
+	}
+
+	/**
+	 * receives the progress of every run, in addition to the console output
+	 */
+	public void addListener(DeploymentListener listener) {
+		listeners.add(listener);
+	}
+
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * applies the change scripts to the database of this data source instead of connecting through
+	 * driver and url, e.g. a {@link com.dbdeploy.database.changelog.ConnectionPool} shared with the
+	 * application; it has to provide applyParallelism connections at the same time. The userid, if
+	 * set, is recorded as the user applying the changes, otherwise the user of the connections.
+	 */
+	public void setDataSource(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	public boolean isReadAhead() {
+		return readAhead;
+	}
+
+	/**
+	 * read and split upcoming change scripts on a separate thread while applying directly
+	 */
+	public void setReadAhead(boolean readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	public int getApplyParallelism() {
+		return applyParallelism;
+	}
+
+	/**
+	 * number of connections used to apply change scripts with a {@link com.dbdeploy.scripts.ScriptHeader}
+	 * concurrently, default 1
+	 */
+	public void setApplyParallelism(int applyParallelism) {
+		this.applyParallelism = applyParallelism;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public TransactionMode getTransactionMode() {
+		return transactionMode;
+	}
+
+	public void setTransactionMode(TransactionMode transactionMode) {
+		this.transactionMode = transactionMode;
+	}
+
+	public int getScriptsPerTransaction() {
+		return scriptsPerTransaction;
+	}
+
+	public void setScriptsPerTransaction(int scriptsPerTransaction) {
+		this.scriptsPerTransaction = scriptsPerTransaction;
+	}
+
 	public File getPreScriptExecutionFile() {
 		return preScriptExecutionFile;
 	}
@@ -0,0 +1,52 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.Script;
+
+
+/**
+ * Receives the progress of a deployment, e.g. for console output, metrics or tracing.
+ *
+ * When change scripts are applied on several connections, the callbacks are made from several
+ * threads, so implementations have to be thread safe. They should also be fast, since they are
+ * called for every statement; see {@link AsyncDeploymentListener} for slow ones.
+ */
+public interface DeploymentListener {
+	/**
+	 * general progress, like the change scripts found and to be applied
+	 */
+	void info(String message);
+
+	/**
+	 * a change script, or a pre or post script, is about to be applied
+	 */
+	void scriptStarted(Script script);
+
+	/**
+	 * @param statement number of the statement within the script, or of the first statement of a batch
+	 * @param sql the statement, or the first statement of a batch
+	 * @param nanos wall time of the execution
+	 * @param updateCounts one per statement, with a negative value where the database did not
+	 * report the number of rows affected
+	 */
+	void statementExecuted(Script script, int statement, String sql, long nanos, int[] updateCounts);
+
+	/**
+	 * the change script has been applied and recorded in the changelog, and the transaction has been
+	 * committed
+	 */
+	void scriptCommitted(ChangeScript script);
+
+	/**
+	 * a step of the run is complete; with several targets, all but the scan are reported per target
+	 *
+	 * @param nanos wall time of the step
+	 */
+	void phaseFinished(DeploymentPhase phase, long nanos);
+
+	/**
+	 * @param appliedScripts number of change scripts applied
+	 * @param failure why the run failed, or null
+	 */
+	void runFinished(int appliedScripts, Throwable failure);
+}
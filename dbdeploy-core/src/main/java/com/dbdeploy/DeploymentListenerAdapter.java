@@ -0,0 +1,28 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.Script;
+
+
+/**
+ * {@link DeploymentListener} that ignores all events, for listeners interested in a few of them.
+ */
+public class DeploymentListenerAdapter implements DeploymentListener {
+	public void info(String message) {
+	}
+
+	public void scriptStarted(Script script) {
+	}
+
+	public void statementExecuted(Script script, int statement, String sql, long nanos, int[] updateCounts) {
+	}
+
+	public void scriptCommitted(ChangeScript script) {
+	}
+
+	public void phaseFinished(DeploymentPhase phase, long nanos) {
+	}
+
+	public void runFinished(int appliedScripts, Throwable failure) {
+	}
+}
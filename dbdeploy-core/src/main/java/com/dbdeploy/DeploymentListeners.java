@@ -0,0 +1,54 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.Script;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Passes every event on to several listeners, in the order they have been given.
+ */
+public class DeploymentListeners implements DeploymentListener {
+	private final List<DeploymentListener> listeners;
+
+	public DeploymentListeners(List<? extends DeploymentListener> listeners) {
+		this.listeners = new ArrayList<DeploymentListener>(listeners);
+	}
+
+	public void info(String message) {
+		for (DeploymentListener listener : listeners) {
+			listener.info(message);
+		}
+	}
+
+	public void scriptStarted(Script script) {
+		for (DeploymentListener listener : listeners) {
+			listener.scriptStarted(script);
+		}
+	}
+
+	public void statementExecuted(Script script, int statement, String sql, long nanos, int[] updateCounts) {
+		for (DeploymentListener listener : listeners) {
+			listener.statementExecuted(script, statement, sql, nanos, updateCounts);
+		}
+	}
+
+	public void scriptCommitted(ChangeScript script) {
+		for (DeploymentListener listener : listeners) {
+			listener.scriptCommitted(script);
+		}
+	}
+
+	public void phaseFinished(DeploymentPhase phase, long nanos) {
+		for (DeploymentListener listener : listeners) {
+			listener.phaseFinished(phase, nanos);
+		}
+	}
+
+	public void runFinished(int appliedScripts, Throwable failure) {
+		for (DeploymentListener listener : listeners) {
+			listener.runFinished(appliedScripts, failure);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.dbdeploy;
+
+
+/**
+ * The steps of a run, reported through {@link DeploymentListener#phaseFinished}.
+ */
+public enum DeploymentPhase {
+	/**
+	 * reading and checksumming the change scripts
+	 */
+	scan,
+
+	/**
+	 * reading the ids and checksums of the changes applied from the changelog
+	 */
+	changelog,
+
+	/**
+	 * validating the checksums and finding the change scripts to apply
+	 */
+	plan,
+
+	/**
+	 * applying the change scripts, or writing them to the output files
+	 */
+	apply
+}
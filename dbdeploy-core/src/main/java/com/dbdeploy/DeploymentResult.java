@@ -0,0 +1,47 @@
+package com.dbdeploy;
+
+
+/**
+ * Outcome of deploying to one {@link DeploymentTarget}.
+ */
+public class DeploymentResult {
+	private final DeploymentTarget target;
+	private final int appliedChangeScripts;
+	private final long durationMillis;
+	private final Throwable failure;
+
+	public DeploymentResult(DeploymentTarget target, int appliedChangeScripts, long durationMillis, Throwable failure) {
+		this.target = target;
+		this.appliedChangeScripts = appliedChangeScripts;
+		this.durationMillis = durationMillis;
+		this.failure = failure;
+	}
+
+	public DeploymentTarget getTarget() {
+		return target;
+	}
+
+	public int getAppliedChangeScripts() {
+		return appliedChangeScripts;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	public boolean isSuccessful() {
+		return failure == null;
+	}
+
+	@Override
+	public String toString() {
+		if (isSuccessful()) {
+			return "OK      " + target + ": " + appliedChangeScripts + " change script(s) applied in " + durationMillis + " ms";
+		}
+		return "FAILED  " + target + " after " + durationMillis + " ms: " + failure.getMessage();
+	}
+}
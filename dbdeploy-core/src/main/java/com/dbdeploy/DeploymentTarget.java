@@ -0,0 +1,93 @@
+package com.dbdeploy;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.exceptions.UsageException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.dbdeploy.ConstraintUtils.ensureNotNull;
+
+
+/**
+ * A database a fan-out deployment applies the change scripts to.
+ */
+public class DeploymentTarget {
+	private final String url;
+	private final String userid;
+	private final String password;
+
+	public DeploymentTarget(String url, String userid, String password) {
+		this.url = ensureNotNull("url", url);
+		this.userid = ensureNotNull("userid", userid);
+		this.password = password;
+	}
+
+	/**
+	 * Reads one target per line, given as the JDBC url optionally followed by userid and password,
+	 * separated by whitespace. Empty lines and lines starting with # are ignored.
+	 *
+	 * @param encoding of the file
+	 * @param userid used for targets without userid
+	 * @param password used for targets without userid
+	 */
+	public static List<DeploymentTarget> read(File file, String encoding, String userid, String password) {
+		List<DeploymentTarget> targets = new ArrayList<DeploymentTarget>();
+
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding));
+			try {
+				String line;
+				int lineNumber = 0;
+
+				while ((line = reader.readLine()) != null) {
+					lineNumber++;
+					line = line.trim();
+
+					if (line.length() == 0 || line.startsWith("#")) {
+						continue;
+					}
+
+					String[] fields = line.split("\\s+");
+					if (fields.length > 3 || (fields.length == 1 && userid == null)) {
+						throw new UsageException("Line " + lineNumber + " of " + file
+							+ " must consist of url, userid and optionally password");
+					}
+
+					if (fields.length == 1) {
+						targets.add(new DeploymentTarget(fields[0], userid, password));
+					} else {
+						targets.add(new DeploymentTarget(fields[0], fields[1], fields.length == 3 ? fields[2] : null));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read targets file " + file, e);
+		}
+
+		return targets;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public String getUserid() {
+		return userid;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	@Override
+	public String toString() {
+		return userid + "@" + url;
+	}
+}
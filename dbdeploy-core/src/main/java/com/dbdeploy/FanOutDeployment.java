@@ -0,0 +1,80 @@
+package com.dbdeploy;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Deploys to several targets on a bounded pool of worker threads. A failing target does not
+ * stop the deployment to the others; the results are reported per target.
+ */
+public class FanOutDeployment {
+
+	public interface TargetDeployer {
+		/**
+		 * @return the number of change scripts applied
+		 */
+		int deploy(DeploymentTarget target) throws Exception;
+	}
+
+	private final TargetDeployer deployer;
+	private final int parallelism;
+
+	public FanOutDeployment(TargetDeployer deployer, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism has to be at least 1");
+		}
+		this.deployer = deployer;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return the results in the order of the targets
+	 */
+	public List<DeploymentResult> deploy(List<DeploymentTarget> targets) throws InterruptedException {
+		List<DeploymentResult> results = new ArrayList<DeploymentResult>();
+
+		if (targets.isEmpty()) {
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, targets.size()));
+		try {
+			List<Future<DeploymentResult>> futures = new ArrayList<Future<DeploymentResult>>();
+			for (final DeploymentTarget target : targets) {
+				futures.add(executor.submit(new Callable<DeploymentResult>() {
+					public DeploymentResult call() {
+						return deployTo(target);
+					}
+				}));
+			}
+
+			for (Future<DeploymentResult> future : futures) {
+				results.add(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new DbDeployException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return results;
+	}
+
+	private DeploymentResult deployTo(DeploymentTarget target) {
+		long start = System.currentTimeMillis();
+
+		try {
+			int applied = deployer.deploy(target);
+			return new DeploymentResult(target, applied, System.currentTimeMillis() - start, null);
+		} catch (Throwable e) {
+			return new DeploymentResult(target, 0, System.currentTimeMillis() - start, e);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.DelimiterType;
+import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.scripts.ChangeScript;
+import freemarker.template.Template;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Writes apply and undo output in a single pass over the change scripts.
+ *
+ * Like {@link TemplateBasedApplier#setStreaming(boolean) streaming}, the templates are rendered once
+ * per change script and its content is released afterwards. The undo sections are pushed onto a
+ * {@link SpillToDiskStack} and written in reverse order at the end.
+ */
+public class CombinedTemplateBasedApplier extends TemplateBasedApplier {
+	private static final long UNDO_MEMORY_LIMIT = 4 * 1024 * 1024;
+
+	private final Writer undoWriter;
+
+	public CombinedTemplateBasedApplier(Writer writer, Writer undoWriter, String syntax, String changeLogTableName,
+										String delimiter, DelimiterType delimiterType, File templateDirectory) throws IOException {
+		super(writer, syntax, changeLogTableName, delimiter, delimiterType, templateDirectory);
+		this.undoWriter = undoWriter;
+	}
+
+	@Override
+	public void apply(List<ChangeScript> changeScripts) {
+		SpillToDiskStack undoSections = new SpillToDiskStack(UNDO_MEMORY_LIMIT);
+
+		try {
+			Map<String, Object> model = createModel();
+
+			try {
+				Template applyTemplate = getTemplate("apply");
+				Template undoTemplate = getTemplate("undo");
+
+				for (ChangeScript script : changeScripts) {
+					model.put("scripts", Collections.singletonList(script));
+					applyTemplate.process(model, getWriter());
+
+					StringWriter undoSection = new StringWriter();
+					undoTemplate.process(model, undoSection);
+					undoSections.push(undoSection.toString());
+
+					script.releaseContent();
+				}
+
+				while (!undoSections.isEmpty()) {
+					undoWriter.write(undoSections.pop());
+				}
+			} finally {
+				undoSections.close();
+				getWriter().close();
+				undoWriter.close();
+			}
+		} catch (UsageException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,377 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.ConsoleDeploymentListener;
+import com.dbdeploy.DeploymentListener;
+import com.dbdeploy.DeploymentListenerAdapter;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.Script;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+
+/**
+ * Wall time, rows affected and update counts of the statements and scripts applied directly.
+ *
+ * Only the slowest statements and scripts are kept, for the report at the end of a run; all of
+ * them can be written to a file as JSON lines, one object per statement or script, as they are
+ * executed. The time of a script is measured from its start until its last statement has been
+ * executed, so it does not include waiting for the scripts committed in the same transaction.
+ *
+ * When deploying to several targets, each of them reports through its own {@link #forTarget}
+ * listener, and the statements and scripts are reported with the target.
+ */
+public class DeploymentStatistics extends DeploymentListenerAdapter {
+	private static final int MAX_SQL_IN_REPORT = 80;
+
+	private final int slowestToReport;
+	private final PriorityQueue<Timing> slowestStatements;
+	private final PriorityQueue<Timing> slowestScripts;
+	private Writer jsonLines;
+	private int statements;
+	private int scripts;
+	private long totalNanos;
+	private final Map<Script, ScriptTiming> runningScripts = new IdentityHashMap<Script, ScriptTiming>();
+	private DeploymentListener listener = new ConsoleDeploymentListener();
+
+	/**
+	 * @param slowestToReport number of statements and of scripts listed in the report
+	 */
+	public DeploymentStatistics(int slowestToReport) {
+		if (slowestToReport < 0) {
+			throw new IllegalArgumentException("number of statements to report cannot be negative");
+		}
+		this.slowestToReport = slowestToReport;
+		this.slowestStatements = new PriorityQueue<Timing>(slowestToReport + 1, Timing.BY_DURATION);
+		this.slowestScripts = new PriorityQueue<Timing>(slowestToReport + 1, Timing.BY_DURATION);
+	}
+
+	/**
+	 * writes a JSON object per statement and script to the file, which is closed by {@link #runFinished}
+	 */
+	public synchronized void writeJsonLinesTo(File file) {
+		try {
+			writeJsonLinesTo(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8")));
+		} catch (IOException e) {
+			throw new DbDeployException("Could not write timings to " + file, e);
+		}
+	}
+
+	synchronized void writeJsonLinesTo(Writer writer) {
+		jsonLines = writer;
+	}
+
+	/**
+	 * receives the failures to write the JSON lines, by default printed to the console
+	 */
+	public synchronized void setListener(DeploymentListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param target reported with the statements and scripts, e.g. userid@url
+	 * @return a listener for the deployment to one of several targets, which leaves finishing the
+	 * run to the statistics themselves
+	 */
+	public DeploymentListener forTarget(final String target) {
+		return new DeploymentListenerAdapter() {
+			private final Map<Script, ScriptTiming> runningScripts = new IdentityHashMap<Script, ScriptTiming>();
+
+			@Override
+			public void scriptStarted(Script script) {
+				synchronized (DeploymentStatistics.this) {
+					started(runningScripts, script);
+				}
+			}
+
+			@Override
+			public void statementExecuted(Script script, int statement, String sql, long nanos, int[] updateCounts) {
+				synchronized (DeploymentStatistics.this) {
+					executed(target, runningScripts, script, statement, sql, nanos, updateCounts);
+				}
+			}
+
+			@Override
+			public void scriptCommitted(ChangeScript script) {
+				synchronized (DeploymentStatistics.this) {
+					committed(target, runningScripts, script);
+				}
+			}
+		};
+	}
+
+	@Override
+	public synchronized void scriptStarted(Script script) {
+		started(runningScripts, script);
+	}
+
+	@Override
+	public synchronized void statementExecuted(Script script, int statement, String sql, long nanos, int[] updateCounts) {
+		executed(null, runningScripts, script, statement, sql, nanos, updateCounts);
+	}
+
+	@Override
+	public synchronized void scriptCommitted(ChangeScript script) {
+		committed(null, runningScripts, script);
+	}
+
+	synchronized void scriptApplied(Script script, long nanos, int statements, long rows) {
+		scriptApplied(null, script, nanos, statements, rows);
+	}
+
+	private static void started(Map<Script, ScriptTiming> runningScripts, Script script) {
+		if (script instanceof ChangeScript) {
+			runningScripts.put(script, new ScriptTiming(System.nanoTime()));
+		}
+	}
+
+	private void executed(String target, Map<Script, ScriptTiming> runningScripts, Script script, int statement,
+						  String sql, long nanos, int[] updateCounts) {
+		statements += updateCounts.length;
+		totalNanos += nanos;
+
+		Timing timing = new Timing(target, script, statement,
+			updateCounts.length > 1 ? "batch of " + updateCounts.length + ": " + sql : sql,
+			nanos, rowsAffected(updateCounts));
+		keep(slowestStatements, timing);
+
+		ScriptTiming scriptTiming = runningScripts.get(script);
+		if (scriptTiming != null) {
+			scriptTiming.end = System.nanoTime();
+			scriptTiming.statements += updateCounts.length;
+			if (timing.rows >= 0) {
+				scriptTiming.rows = Math.max(scriptTiming.rows, 0) + timing.rows;
+			}
+		}
+
+		write("{\"type\":\"statement\"" + target(target) + ",\"script\":" + quote(script.toString())
+			+ ",\"statement\":" + statement
+			+ ",\"millis\":" + millis(nanos)
+			+ ",\"rows\":" + timing.rows
+			+ ",\"updateCounts\":" + toJson(updateCounts)
+			+ ",\"sql\":" + quote(sql) + "}");
+	}
+
+	private void committed(String target, Map<Script, ScriptTiming> runningScripts, ChangeScript script) {
+		ScriptTiming scriptTiming = runningScripts.remove(script);
+		if (scriptTiming != null) {
+			scriptApplied(target, script, scriptTiming.end - scriptTiming.start, scriptTiming.statements,
+				scriptTiming.rows);
+		}
+	}
+
+	private void scriptApplied(String target, Script script, long nanos, int statements, long rows) {
+		scripts++;
+
+		keep(slowestScripts, new Timing(target, script, statements, null, nanos, rows));
+
+		write("{\"type\":\"script\"" + target(target) + ",\"script\":" + quote(script.toString())
+			+ ",\"statements\":" + statements
+			+ ",\"millis\":" + millis(nanos)
+			+ ",\"rows\":" + rows + "}");
+	}
+
+	/**
+	 * the target field, only written when deploying to several targets
+	 */
+	private static String target(String target) {
+		return target == null ? "" : ",\"target\":" + quote(target);
+	}
+
+	/**
+	 * closes the JSON lines file
+	 */
+	@Override
+	public synchronized void runFinished(int appliedScripts, Throwable failure) {
+		closeJsonLines();
+	}
+
+	/**
+	 * @return the slowest statements and scripts, slowest first, or null if there is nothing to report
+	 */
+	public synchronized String report() {
+		if (slowestToReport == 0 || statements == 0) {
+			return null;
+		}
+
+		StringBuilder report = new StringBuilder();
+		report.append(statements).append(" statements of ").append(scripts).append(" scripts executed in ")
+			.append(millis(totalNanos)).append(" ms");
+
+		report.append("\nSlowest statements:");
+		for (Timing timing : sorted(slowestStatements)) {
+			report.append(String.format("\n  %10s ms  %s, statement %d%s: %s", millis(timing.nanos), timing.label(),
+				timing.statement, rows(timing), abbreviate(timing.sql)));
+		}
+
+		report.append("\nSlowest change scripts:");
+		for (Timing timing : sorted(slowestScripts)) {
+			report.append(String.format("\n  %10s ms  %s, %d statements%s", millis(timing.nanos), timing.label(),
+				timing.statement, rows(timing)));
+		}
+
+		return report.toString();
+	}
+
+	private void keep(PriorityQueue<Timing> slowest, Timing timing) {
+		if (slowestToReport == 0) {
+			return;
+		}
+		slowest.add(timing);
+		if (slowest.size() > slowestToReport) {
+			slowest.poll();
+		}
+	}
+
+	private static List<Timing> sorted(PriorityQueue<Timing> slowest) {
+		List<Timing> timings = new ArrayList<Timing>(slowest);
+		Collections.sort(timings, Collections.reverseOrder(Timing.BY_DURATION));
+		return timings;
+	}
+
+	private void write(String line) {
+		if (jsonLines == null) {
+			return;
+		}
+		try {
+			jsonLines.write(line);
+			jsonLines.write('\n');
+		} catch (IOException e) {
+			listener.info("Could not write timings: " + e.getMessage());
+			closeJsonLines();
+		}
+	}
+
+	private void closeJsonLines() {
+		if (jsonLines == null) {
+			return;
+		}
+		try {
+			jsonLines.close();
+		} catch (IOException e) {
+			listener.info("Could not write timings: " + e.getMessage());
+		}
+		jsonLines = null;
+	}
+
+	private static long rowsAffected(int[] updateCounts) {
+		long rows = -1;
+		for (int updateCount : updateCounts) {
+			if (updateCount >= 0) {
+				rows = Math.max(rows, 0) + updateCount;
+			}
+		}
+		return rows;
+	}
+
+	private static String rows(Timing timing) {
+		return timing.rows < 0 ? "" : " (" + timing.rows + " rows)";
+	}
+
+	private static String abbreviate(String sql) {
+		String singleLine = sql.replaceAll("\\s+", " ").trim();
+		if (singleLine.length() <= MAX_SQL_IN_REPORT) {
+			return singleLine;
+		}
+		return singleLine.substring(0, MAX_SQL_IN_REPORT - 3) + "...";
+	}
+
+	static String millis(long nanos) {
+		return String.format(Locale.US, "%.3f", nanos / 1000000.0);
+	}
+
+	private static String toJson(int[] values) {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append(values[i]);
+		}
+		return json.append(']').toString();
+	}
+
+	static String quote(String value) {
+		StringBuilder json = new StringBuilder(value.length() + 2);
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					json.append("\\\"");
+					break;
+				case '\\':
+					json.append("\\\\");
+					break;
+				case '\n':
+					json.append("\\n");
+					break;
+				case '\r':
+					json.append("\\r");
+					break;
+				case '\t':
+					json.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						json.append(String.format("\\u%04x", (int) c));
+					} else {
+						json.append(c);
+					}
+			}
+		}
+		return json.append('"').toString();
+	}
+
+	private static class ScriptTiming {
+		private final long start;
+		private long end;
+		private int statements;
+		private long rows = -1;
+
+		public ScriptTiming(long start) {
+			this.start = start;
+			this.end = start;
+		}
+	}
+
+	private static class Timing {
+		private static final Comparator<Timing> BY_DURATION = new Comparator<Timing>() {
+			public int compare(Timing timing, Timing other) {
+				return timing.nanos < other.nanos ? -1 : (timing.nanos == other.nanos ? 0 : 1);
+			}
+		};
+
+		private final String target;
+		private final Script script;
+		private final int statement;
+		private final String sql;
+		private final long nanos;
+		private final long rows;
+
+		public Timing(String target, Script script, int statement, String sql, long nanos, long rows) {
+			this.target = target;
+			this.script = script;
+			this.statement = statement;
+			this.sql = sql;
+			this.nanos = nanos;
+			this.rows = rows;
+		}
+
+		public String label() {
+			return target == null ? script.toString() : "[" + target + "] " + script;
+		}
+	}
+}
@@ -1,22 +1,59 @@
 package com.dbdeploy.appliers;
 
 import com.dbdeploy.ChangeScriptApplier;
+import com.dbdeploy.ConsoleDeploymentListener;
+import com.dbdeploy.DeploymentListener;
 import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.database.TransactionMode;
 import com.dbdeploy.database.changelog.DatabaseSchemaVersionManager;
 import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.database.changelog.ScriptProgress;
+import com.dbdeploy.exceptions.DbDeployException;
 import com.dbdeploy.exceptions.ScriptFailedException;
+import com.dbdeploy.exceptions.StatementTimeoutException;
 import com.dbdeploy.scripts.ChangeScript;
 import com.dbdeploy.scripts.Script;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.BatchUpdateException;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.apache.commons.codec.binary.Hex;
 
 
 public class DirectToDbApplier implements ChangeScriptApplier {
+	private static final Pattern DML_STATEMENT = Pattern.compile(
+		"^(\\s|--[^\\n]*\\n|/\\*.*?\\*/)*(INSERT|UPDATE|DELETE|MERGE)\\b.*",
+		Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	private static final int READ_AHEAD_CAPACITY = 1024 * 1024;
+
 	private final QueryExecuter queryExecuter;
 	private final DatabaseSchemaVersionManager schemaVersionManager;
 	private final QueryStatementSplitter splitter;
 	private Script preScriptExecutionScript;
 	private Script postScriptExecutionScript;
+	private int batchSize = 1;
+	private TransactionMode transactionMode = TransactionMode.script;
+	private int scriptsPerTransaction = 1;
+	private boolean readAhead;
+	private StatementPipeline pipeline;
+	private long statementTimeoutMillis;
+	private long scriptTimeoutMillis;
+	private RetryPolicy retryPolicy = new RetryPolicy(0);
+	private int savepointInterval;
+	private boolean resumable;
+	private Map<Long, ScriptProgress> scriptProgress;
+	private boolean failedAfterSavepoint;
+	private DeploymentListener listener = new ConsoleDeploymentListener();
 
 	public DirectToDbApplier(QueryExecuter queryExecuter, DatabaseSchemaVersionManager schemaVersionManager,
 							 QueryStatementSplitter splitter) {
@@ -28,30 +65,132 @@ public class DirectToDbApplier implements ChangeScriptApplier {
 	public void apply(List<ChangeScript> changeScript) {
 		begin();
 
-		for (ChangeScript script : changeScript) {
-			System.err.println("Applying " + script + "...");
+		if (resumable && scriptProgress == null) {
+			scriptProgress = schemaVersionManager.findScriptProgress();
+		}
+
+		List<ChangeScript> uncommittedScripts = new ArrayList<ChangeScript>();
+
+		if (readAhead && changeScript.size() > 1) {
+			pipeline = new StatementPipeline(changeScript, splitter, READ_AHEAD_CAPACITY);
+		}
+
+		try {
+			for (ChangeScript script : changeScript) {
+				applyWithRetries(script, uncommittedScripts);
 
-			applyPreScriptScript();
+				uncommittedScripts.add(script);
 
-			applyChangeScript(script);
+				if (transactionMode == TransactionMode.statement
+					|| (transactionMode == TransactionMode.script && uncommittedScripts.size() == scriptsPerTransaction)) {
+					commit(uncommittedScripts);
+				}
+			}
+		} finally {
+			if (pipeline != null) {
+				pipeline.close();
+				pipeline = null;
+			}
+		}
+
+		if (!uncommittedScripts.isEmpty()) {
+			commit(uncommittedScripts);
+		}
+	}
+
+	/**
+	 * after a transient failure, the transaction is rolled back and all of its scripts are applied
+	 * again; in transaction mode statement, the failed statement is retried on its own instead,
+	 * and with savepoints the statements since the last one
+	 */
+	private void applyWithRetries(ChangeScript script, List<ChangeScript> uncommittedScripts) {
+		for (int retry = 0; ; retry++) {
+			failedAfterSavepoint = false;
+			try {
+				if (retry > 0) {
+					for (ChangeScript uncommitted : uncommittedScripts) {
+						applyInTransaction(uncommitted);
+					}
+				}
+				applyInTransaction(script);
+				return;
+			} catch (ScriptFailedException e) {
+				if (transactionMode == TransactionMode.statement || failedAfterSavepoint
+					|| !retryPolicy.shouldRetry(e, retry + 1)) {
+					throw e;
+				}
+
+				rollback(e);
+
+				// the statements read ahead no longer match the scripts being applied
+				if (pipeline != null) {
+					pipeline.close();
+					pipeline = null;
+				}
+
+				waitBeforeRetry(e, retry + 1, "transaction of " + (uncommittedScripts.size() + 1) + " change script(s)");
+			}
+		}
+	}
 
-			applyPostScriptScript();
-			insertToSchemaVersionTable(script);
+	private void applyInTransaction(ChangeScript script) {
+		listener.scriptStarted(script);
 
+		applyPreScriptScript();
+
+		applyChangeScript(script);
+
+		applyPostScriptScript();
+		insertToSchemaVersionTable(script);
+	}
+
+	private void rollback(ScriptFailedException failure) {
+		try {
+			queryExecuter.rollback();
+		} catch (SQLException e) {
+			throw failure;
+		}
+	}
+
+	private void waitBeforeRetry(Exception failure, int retry, String retried) {
+		long start = System.currentTimeMillis();
+		listener.info("Transient failure, retrying the " + retried + " (retry " + retry + " of "
+			+ retryPolicy.getMaxRetries() + "): " + failure.getMessage());
+
+		if (!retryPolicy.backoff(retry)) {
+			throw new DbDeployException("Interrupted while waiting to retry after " + failure.getMessage(), failure);
+		}
+
+		listener.info("Retrying after " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * in transaction mode statement, everything has been committed already
+	 */
+	private void commit(List<ChangeScript> scripts) {
+		if (transactionMode != TransactionMode.statement) {
 			commitTransaction();
 		}
+
+		for (ChangeScript script : scripts) {
+			if (scriptProgress != null) {
+				scriptProgress.remove(script.getId());
+			}
+			listener.scriptCommitted(script);
+		}
+		scripts.clear();
 	}
 
 	private void applyPreScriptScript() {
 		if (preScriptExecutionScript != null) {
-			System.err.println("Applying pre script " + preScriptExecutionScript + "...");
+			listener.scriptStarted(preScriptExecutionScript);
 			applyScript(preScriptExecutionScript);
 		}
 	}
 
 	private void applyPostScriptScript() {
 		if (postScriptExecutionScript != null) {
-			System.err.println("Applying post script " + postScriptExecutionScript + "...");
+			listener.scriptStarted(postScriptExecutionScript);
 			applyScript(postScriptExecutionScript);
 		}
 	}
@@ -59,34 +198,303 @@ public class DirectToDbApplier implements ChangeScriptApplier {
 
 	public void begin() {
 		try {
-			queryExecuter.setAutoCommit(false);
+			queryExecuter.setAutoCommit(transactionMode == TransactionMode.statement);
 		} catch (SQLException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
 	protected void applyChangeScript(ChangeScript script) {
-		applyScript(script);
+		if (pipeline != null) {
+			applyStatements(script, pipeline.nextScript());
+		} else {
+			applyScript(script);
+		}
 	}
 
 	protected void applyScript(Script script) {
-		List<String> statements = splitter.split(script.getContent());
+		Reader content = script.openContent();
+		try {
+			applyStatements(script, splitter.statements(content));
+		} finally {
+			try {
+				content.close();
+			} catch (IOException e) {
+				// nothing left to read
+			}
+		}
+	}
 
-		for (int i = 0; i < statements.size(); i++) {
-			String statement = statements.get(i);
+	private void applyStatements(Script script, Iterator<String> statements) {
+		long deadline = scriptTimeoutMillis > 0 ? System.currentTimeMillis() + scriptTimeoutMillis : 0;
+		try {
+			if (savepointInterval > 0 && transactionMode != TransactionMode.statement
+				&& script instanceof ChangeScript) {
+				applyResumably((ChangeScript) script, statements, deadline);
+			} else {
+				applyStatements(script, statements, 0, null, deadline);
+			}
+		} finally {
+			if (deadline != 0) {
+				queryExecuter.setTimeoutMillis(statementTimeoutMillis);
+			}
+		}
+	}
+
+	/**
+	 * sets a savepoint every {@link #savepointInterval} statements; after a transient failure the
+	 * statements since the last savepoint are retried, after any other failure the statements
+	 * before it are committed if resumable, so the next run can skip them
+	 */
+	private void applyResumably(ChangeScript script, Iterator<String> statements, long deadline) {
+		Checkpoint checkpoint = new Checkpoint();
+		skipCompletedStatements(script, statements, checkpoint);
+
+		Iterator<String> remaining = statements;
+		for (int retry = 1; ; retry++) {
 			try {
-				if (statements.size() > 1) {
-					System.err.println(" -> statement " + (i + 1) + " of " + statements.size() + "...");
+				applyStatements(script, remaining, checkpoint.statement, checkpoint, deadline);
+				return;
+			} catch (ScriptFailedException e) {
+				if (checkpoint.savepoint == null) {
+					throw e;
+				}
+
+				rollbackToSavepoint(checkpoint, e);
+
+				if (!retryPolicy.shouldRetry(e, retry)) {
+					failedAfterSavepoint = true;
+					saveProgress(script, checkpoint, e);
+					throw e;
+				}
+
+				waitBeforeRetry(e, retry, "statements of change script " + script + " after statement "
+					+ checkpoint.statement);
+				remaining = checkpoint.retry(remaining);
+			}
+		}
+	}
+
+	/**
+	 * skips the statements committed by a previous run, after making sure they are still the same
+	 */
+	private void skipCompletedStatements(ChangeScript script, Iterator<String> statements, Checkpoint checkpoint) {
+		ScriptProgress progress = scriptProgress == null ? null : scriptProgress.get(script.getId());
+		if (progress == null) {
+			return;
+		}
+
+		int completed = progress.getCompletedStatements();
+
+		for (int i = 1; i <= completed; i++) {
+			if (!statements.hasNext()) {
+				throw new DbDeployException("Change script " + script + " has fewer than the " + completed
+					+ " statements committed by a previous run, according to the changelog");
+			}
+			checkpoint.add(statements.next());
+		}
+		checkpoint.reached(completed, null);
+
+		if (!checkpoint.digest().equals(progress.getDigest())) {
+			throw new DbDeployException("The first " + completed + " statements of change script " + script
+				+ " have been changed since a previous run committed them, according to the changelog");
+		}
+
+		listener.info("Continuing change script " + script + " after statement " + completed
+			+ ", committed by a previous run");
+	}
+
+	private void rollbackToSavepoint(Checkpoint checkpoint, ScriptFailedException failure) {
+		try {
+			queryExecuter.rollback(checkpoint.savepoint);
+		} catch (SQLException e) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * records the statements up to the savepoint in the changelog and commits them together; the
+	 * transaction must hold no other change script, see {@link #setResumable}
+	 */
+	private void saveProgress(ChangeScript script, Checkpoint checkpoint, ScriptFailedException failure) {
+		if (!resumable || transactionMode != TransactionMode.script || scriptsPerTransaction > 1) {
+			return;
+		}
+
+		try {
+			schemaVersionManager.recordScriptProgress(script, checkpoint.statement, checkpoint.digest());
+		} catch (DbDeployException e) {
+			throw new DbDeployException(failure.getMessage() + "\nThe progress could not be recorded, so the first "
+				+ checkpoint.statement + " statements have not been committed either", e);
+		}
+		commitTransaction();
+		scriptProgress.put(script.getId(), new ScriptProgress(checkpoint.statement, checkpoint.digest()));
+
+		listener.info("Committed the first " + checkpoint.statement + " statements of change script " + script
+			+ "; the next run continues with statement " + (checkpoint.statement + 1));
+	}
+
+	/**
+	 * @param first number of statements of the script before those of the iterator
+	 * @param checkpoint where savepoints are kept, or null for none
+	 */
+	private void applyStatements(Script script, Iterator<String> statements, int first, Checkpoint checkpoint,
+								 long deadline) {
+		List<String> batch = new ArrayList<String>();
+		int batchStart = 0;
+		int i = first;
+
+		while (statements.hasNext()) {
+			String statement = statements.next();
+			i++;
+
+			if (checkpoint != null) {
+				checkpoint.add(statement);
+			}
+
+			if (batchSize > 1 && isDml(statement)) {
+				if (batch.isEmpty()) {
+					batchStart = i;
+				}
+				batch.add(statement);
+
+				if (batch.size() == batchSize) {
+					executeBatch(script, batch, batchStart, deadline);
+					batch = new ArrayList<String>();
+					setSavepointIfDue(script, checkpoint, i);
 				}
-				queryExecuter.execute(statement);
+				continue;
+			}
+
+			if (!batch.isEmpty()) {
+				executeBatch(script, batch, batchStart, deadline);
+				batch = new ArrayList<String>();
+			}
+
+			try {
+				limitToDeadline(deadline);
+				long start = System.nanoTime();
+				int updateCount = execute(statement);
+				listener.statementExecuted(script, i, statement, System.nanoTime() - start, new int[] { updateCount });
 			} catch (SQLException e) {
-				throw new ScriptFailedException(e, script, i + 1, statement);
+				throw new ScriptFailedException(e, script, i, statement);
 			}
+
+			setSavepointIfDue(script, checkpoint, i);
+		}
+
+		if (!batch.isEmpty()) {
+			executeBatch(script, batch, batchStart, deadline);
 		}
 	}
 
+	private void executeBatch(Script script, List<String> batch, int batchStart, long deadline) {
+		try {
+			limitToDeadline(deadline);
+			long start = System.nanoTime();
+			int[] updateCounts = queryExecuter.executeBatch(batch);
+			listener.statementExecuted(script, batchStart, batch.get(0), System.nanoTime() - start, updateCounts);
+		} catch (BatchUpdateException e) {
+			int failed = indexOfFailedStatement(e, batch.size());
+			throw new ScriptFailedException(e, script, batchStart + failed, batch.get(failed));
+		} catch (SQLException e) {
+			throw new ScriptFailedException(e, script, batchStart, batch.get(0));
+		}
+	}
+
+	/**
+	 * sets a savepoint once {@link #savepointInterval} statements have been executed since the last one,
+	 * which is released
+	 */
+	private void setSavepointIfDue(Script script, Checkpoint checkpoint, int statement) {
+		if (checkpoint == null || statement - checkpoint.statement < savepointInterval) {
+			return;
+		}
+
+		Savepoint savepoint;
+		try {
+			savepoint = queryExecuter.setSavepoint();
+		} catch (SQLException e) {
+			throw new ScriptFailedException(e, script, statement, "SAVEPOINT");
+		}
+
+		if (checkpoint.savepoint != null) {
+			try {
+				queryExecuter.releaseSavepoint(checkpoint.savepoint);
+			} catch (SQLException e) {
+				// kept until the commit then
+			}
+		}
+
+		checkpoint.reached(statement, savepoint);
+	}
+
+	/**
+	 * in transaction mode statement, a statement that failed transiently has not changed anything
+	 * and is retried on its own
+	 */
+	private int execute(String statement) throws SQLException {
+		for (int retry = 1; ; retry++) {
+			try {
+				return queryExecuter.execute(statement);
+			} catch (SQLException e) {
+				if (transactionMode != TransactionMode.statement || !retryPolicy.shouldRetry(e, retry)) {
+					throw e;
+				}
+				waitBeforeRetry(e, retry, "statement");
+			}
+		}
+	}
+
+	/**
+	 * limits the next statement to the time left for the script, or to the statement timeout if that is shorter
+	 *
+	 * @throws StatementTimeoutException if no time is left
+	 */
+	private void limitToDeadline(long deadline) throws StatementTimeoutException {
+		if (deadline == 0) {
+			return;
+		}
+
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining <= 0) {
+			throw new StatementTimeoutException("the change script exceeded its timeout of " + scriptTimeoutMillis
+				+ " ms", scriptTimeoutMillis);
+		}
+
+		queryExecuter.setTimeoutMillis(statementTimeoutMillis > 0 ? Math.min(statementTimeoutMillis, remaining)
+			: remaining);
+	}
+
+	/**
+	 * drivers either stop at the failing statement, returning the update counts of the statements
+	 * executed before it, or continue and mark the failing statement with EXECUTE_FAILED
+	 */
+	private static int indexOfFailedStatement(BatchUpdateException e, int batchSize) {
+		int[] updateCounts = e.getUpdateCounts();
+
+		if (updateCounts == null) {
+			return 0;
+		}
+
+		for (int i = 0; i < updateCounts.length; i++) {
+			if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+				return i;
+			}
+		}
+
+		return Math.min(updateCounts.length, batchSize - 1);
+	}
+
+	static boolean isDml(String statement) {
+		return DML_STATEMENT.matcher(statement).matches();
+	}
+
 
 	protected void insertToSchemaVersionTable(ChangeScript changeScript) {
+		if (scriptProgress != null && scriptProgress.containsKey(changeScript.getId())) {
+			schemaVersionManager.removeScriptProgress(changeScript);
+		}
 		schemaVersionManager.recordScriptApplied(changeScript);
 	}
 
@@ -98,6 +506,98 @@ public class DirectToDbApplier implements ChangeScriptApplier {
 		}
 	}
 
+	/**
+	 * number of consecutive INSERT, UPDATE, DELETE or MERGE statements sent to the
+	 * database as one JDBC batch, default 1 (no batching)
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batch size has to be at least 1");
+		}
+		this.batchSize = batchSize;
+	}
+
+	public void setTransactionMode(TransactionMode transactionMode) {
+		this.transactionMode = transactionMode;
+	}
+
+	/**
+	 * number of change scripts committed together in {@link TransactionMode#script} mode, default 1
+	 */
+	public void setScriptsPerTransaction(int scriptsPerTransaction) {
+		if (scriptsPerTransaction < 1) {
+			throw new IllegalArgumentException("scripts per transaction has to be at least 1");
+		}
+		this.scriptsPerTransaction = scriptsPerTransaction;
+	}
+
+	/**
+	 * read and split the next change scripts on a separate thread while the current one is applied,
+	 * holding up to {@value #READ_AHEAD_CAPACITY} characters of statements
+	 */
+	public void setReadAhead(boolean readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	/**
+	 * seconds a statement, or a batch of statements, may run before it is cancelled, 0 (the
+	 * default) for no limit; this also applies to recording scripts in the changelog
+	 */
+	public void setStatementTimeout(int seconds) {
+		if (seconds < 0) {
+			throw new IllegalArgumentException("statement timeout cannot be negative");
+		}
+		this.statementTimeoutMillis = seconds * 1000L;
+		queryExecuter.setTimeoutMillis(statementTimeoutMillis);
+	}
+
+	/**
+	 * seconds the statements of a script may take together, 0 (the default) for no limit
+	 */
+	public void setScriptTimeout(int seconds) {
+		if (seconds < 0) {
+			throw new IllegalArgumentException("script timeout cannot be negative");
+		}
+		this.scriptTimeoutMillis = seconds * 1000L;
+	}
+
+	/**
+	 * how often and when to retry after deadlocks, lock wait timeouts and other transient failures,
+	 * by default never
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * number of statements of a change script after which a savepoint is set, 0 (the default) for
+	 * none; it is ignored in {@link TransactionMode#statement} mode
+	 */
+	public void setSavepointInterval(int savepointInterval) {
+		if (savepointInterval < 0) {
+			throw new IllegalArgumentException("savepoint interval cannot be negative");
+		}
+		this.savepointInterval = savepointInterval;
+	}
+
+	/**
+	 * if set, a change script that fails after a savepoint is committed up to the savepoint, which is
+	 * recorded in the changelog, and the next run continues after it; this requires one change
+	 * script per transaction in {@link TransactionMode#script} mode, otherwise nothing is committed,
+	 * and the progress columns in the changelog table, see
+	 * {@link DatabaseSchemaVersionManager#setRecordsProgress}
+	 */
+	public void setResumable(boolean resumable) {
+		this.resumable = resumable;
+	}
+
+	/**
+	 * receives the progress, by default printed to the console
+	 */
+	public void setListener(DeploymentListener listener) {
+		this.listener = listener;
+	}
+
 	public Script getPreScriptExecutionScript() {
 		return preScriptExecutionScript;
 	}
@@ -113,4 +613,79 @@ public class DirectToDbApplier implements ChangeScriptApplier {
 	public void setPostScriptExecutionScript(Script postScriptExecutionScript) {
 		this.postScriptExecutionScript = postScriptExecutionScript;
 	}
+
+	/**
+	 * the last savepoint of a change script, and the statements before and after it
+	 */
+	private static class Checkpoint {
+		private static final String DIGEST_ENCODING = "UTF-8";
+
+		private final MessageDigest digest;
+		private final List<String> pending = new ArrayList<String>();
+		private Savepoint savepoint;
+		private int statement;
+
+		public Checkpoint() {
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new DbDeployException("SHA-256 is not supported by this JVM", e);
+			}
+		}
+
+		/**
+		 * a statement executed since the savepoint
+		 */
+		public void add(String sql) {
+			pending.add(sql);
+		}
+
+		public void reached(int statement, Savepoint savepoint) {
+			try {
+				for (String sql : pending) {
+					digest.update(sql.getBytes(DIGEST_ENCODING));
+					digest.update((byte) '\n');
+				}
+			} catch (UnsupportedEncodingException e) {
+				throw new DbDeployException(DIGEST_ENCODING + " is not supported by this JVM", e);
+			}
+			pending.clear();
+
+			this.statement = statement;
+			this.savepoint = savepoint;
+		}
+
+		/**
+		 * of the statements up to the savepoint
+		 */
+		public String digest() {
+			try {
+				return new String(Hex.encodeHex(((MessageDigest) digest.clone()).digest()));
+			} catch (CloneNotSupportedException e) {
+				throw new DbDeployException("SHA-256 digests cannot be copied in this JVM", e);
+			}
+		}
+
+		/**
+		 * @return the statements since the savepoint, followed by the remaining ones
+		 */
+		public Iterator<String> retry(final Iterator<String> remaining) {
+			final Iterator<String> executed = new ArrayList<String>(pending).iterator();
+			pending.clear();
+
+			return new Iterator<String>() {
+				public boolean hasNext() {
+					return executed.hasNext() || remaining.hasNext();
+				}
+
+				public String next() {
+					return executed.hasNext() ? executed.next() : remaining.next();
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
 }
@@ -0,0 +1,254 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.AppliedChangesProvider;
+import com.dbdeploy.ChangeScriptApplier;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.ScriptHeader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+
+/**
+ * Applies change scripts that declare a {@link ScriptHeader} concurrently, each on one of several
+ * connections, represented by a {@link DirectToDbApplier} per connection.
+ *
+ * Scripts without a header are applied on the first connection after all scripts before them
+ * have been applied, so a list of scripts without headers is applied exactly as
+ * {@link DirectToDbApplier} does. Every script is recorded in the changelog in the same
+ * transaction, on the connection that applied it.
+ *
+ * A script may only depend on earlier scripts that are either applied in the same run or have
+ * been applied before; this is checked before any script is applied.
+ *
+ * If a script fails, no further scripts are started; the scripts already running are completed
+ * before the failure is reported.
+ */
+public class ParallelDirectToDbApplier implements ChangeScriptApplier {
+	private final List<DirectToDbApplier> appliers;
+	private final AppliedChangesProvider appliedChangesProvider;
+
+	/**
+	 * @param appliedChangesProvider to check dependencies on scripts that are not applied in this run
+	 */
+	public ParallelDirectToDbApplier(List<DirectToDbApplier> appliers, AppliedChangesProvider appliedChangesProvider) {
+		if (appliers.isEmpty()) {
+			throw new IllegalArgumentException("at least one applier is required");
+		}
+		this.appliers = appliers;
+		this.appliedChangesProvider = appliedChangesProvider;
+	}
+
+	public void apply(List<ChangeScript> changeScripts) {
+		Map<ChangeScript, ScriptHeader> declared = new HashMap<ChangeScript, ScriptHeader>();
+		for (ChangeScript script : changeScripts) {
+			ScriptHeader header = script.readHeader();
+			if (header.isDeclared()) {
+				declared.put(script, header);
+			}
+		}
+		validateDependencies(changeScripts, declared);
+
+		List<ChangeScript> serial = new ArrayList<ChangeScript>();
+		List<ChangeScript> concurrent = new ArrayList<ChangeScript>();
+		Map<ChangeScript, ScriptHeader> headers = new HashMap<ChangeScript, ScriptHeader>();
+
+		for (ChangeScript script : changeScripts) {
+			ScriptHeader header = declared.get(script);
+
+			if (header != null) {
+				applySerially(serial);
+				concurrent.add(script);
+				headers.put(script, header);
+			} else {
+				applyConcurrently(concurrent, headers);
+				serial.add(script);
+			}
+		}
+
+		applySerially(serial);
+		applyConcurrently(concurrent, headers);
+	}
+
+	/**
+	 * dependencies have to be on earlier scripts, which are applied in this run or have been applied before
+	 */
+	private void validateDependencies(List<ChangeScript> changeScripts, Map<ChangeScript, ScriptHeader> headers) {
+		Set<Long> ids = new HashSet<Long>();
+		for (ChangeScript script : changeScripts) {
+			ids.add(script.getId());
+		}
+
+		Set<Long> appliedIds = null;
+
+		for (ChangeScript script : changeScripts) {
+			ScriptHeader header = headers.get(script);
+			if (header == null) {
+				continue;
+			}
+
+			for (Long dependency : header.getDependencies()) {
+				if (dependency >= script.getId()) {
+					throw new DbDeployException("Change script " + script + " cannot depend on later change script #"
+						+ dependency);
+				}
+
+				if (!ids.contains(dependency)) {
+					if (appliedIds == null) {
+						appliedIds = new HashSet<Long>(appliedChangesProvider.findAppliedChanges().getIds());
+					}
+					if (!appliedIds.contains(dependency)) {
+						throw new DbDeployException("Change script " + script + " depends on change script #"
+							+ dependency + ", which has neither been applied nor is to be applied");
+					}
+				}
+			}
+		}
+	}
+
+	private void applySerially(List<ChangeScript> scripts) {
+		if (!scripts.isEmpty()) {
+			appliers.get(0).apply(new ArrayList<ChangeScript>(scripts));
+			scripts.clear();
+		}
+	}
+
+	private void applyConcurrently(List<ChangeScript> scripts, Map<ChangeScript, ScriptHeader> headers) {
+		if (scripts.isEmpty()) {
+			return;
+		}
+
+		if (scripts.size() == 1 || appliers.size() == 1) {
+			for (ChangeScript script : scripts) {
+				appliers.get(0).apply(Collections.singletonList(script));
+			}
+		} else {
+			schedule(new ArrayList<ChangeScript>(scripts), predecessors(scripts, headers));
+		}
+
+		scripts.clear();
+		headers.clear();
+	}
+
+	/**
+	 * the previous script of the same group and the scripts declared as dependencies; dependencies
+	 * on scripts that are not part of the list have been applied before, see {@link #validateDependencies}
+	 */
+	static Map<ChangeScript, Set<ChangeScript>> predecessors(List<ChangeScript> scripts,
+															 Map<ChangeScript, ScriptHeader> headers) {
+		Map<ChangeScript, Set<ChangeScript>> predecessors = new HashMap<ChangeScript, Set<ChangeScript>>();
+		Map<Long, ChangeScript> byId = new HashMap<Long, ChangeScript>();
+		Map<String, ChangeScript> lastOfGroup = new HashMap<String, ChangeScript>();
+
+		for (ChangeScript script : scripts) {
+			ScriptHeader header = headers.get(script);
+			Set<ChangeScript> before = new HashSet<ChangeScript>();
+
+			if (header.getGroup() != null && lastOfGroup.containsKey(header.getGroup())) {
+				before.add(lastOfGroup.get(header.getGroup()));
+			}
+
+			for (Long dependency : header.getDependencies()) {
+				if (byId.containsKey(dependency)) {
+					before.add(byId.get(dependency));
+				}
+			}
+
+			predecessors.put(script, before);
+			byId.put(script.getId(), script);
+			if (header.getGroup() != null) {
+				lastOfGroup.put(header.getGroup(), script);
+			}
+		}
+
+		return predecessors;
+	}
+
+	private void schedule(List<ChangeScript> pending, Map<ChangeScript, Set<ChangeScript>> predecessors) {
+		final BlockingQueue<DirectToDbApplier> idle = new LinkedBlockingQueue<DirectToDbApplier>(appliers);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(appliers.size(), pending.size()));
+		CompletionService<ChangeScript> completion = new ExecutorCompletionService<ChangeScript>(executor);
+
+		Set<ChangeScript> applied = new HashSet<ChangeScript>();
+		Throwable failure = null;
+		int running = 0;
+
+		try {
+			for (;;) {
+				if (failure == null) {
+					for (Iterator<ChangeScript> it = pending.iterator(); it.hasNext() && !idle.isEmpty();) {
+						final ChangeScript script = it.next();
+
+						if (applied.containsAll(predecessors.get(script))) {
+							it.remove();
+							completion.submit(applyOn(idle.poll(), script, idle));
+							running++;
+						}
+					}
+				}
+
+				if (running == 0) {
+					break;
+				}
+
+				Future<ChangeScript> result = completion.take();
+				running--;
+
+				try {
+					applied.add(result.get());
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbDeployException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new DbDeployException(failure);
+		}
+	}
+
+	/**
+	 * the applier is returned to the idle queue before the script is reported as completed
+	 */
+	private static Callable<ChangeScript> applyOn(final DirectToDbApplier applier, final ChangeScript script,
+												  final BlockingQueue<DirectToDbApplier> idle) {
+		return new Callable<ChangeScript>() {
+			public ChangeScript call() {
+				try {
+					applier.apply(Collections.singletonList(script));
+					return script;
+				} finally {
+					idle.add(applier);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,174 @@
+package com.dbdeploy.appliers;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+
+/**
+ * Decides which failures are worth retrying and how long to wait before each retry.
+ *
+ * A failure is transient if the SQLState or vendor error code of the exception, or of one of
+ * the exceptions chained to it, is one of those of deadlock victims, serialization failures
+ * and lock wait timeouts. Vendor error codes are only compared for the database they belong
+ * to. The wait doubles with every retry up to a maximum, and a random part of up to half of
+ * it is left out, so deployments that failed together do not retry together.
+ */
+public class RetryPolicy {
+	/**
+	 * serialization failure (also reported for deadlocks by most databases), PostgreSQL's deadlock
+	 * detected and lock not available, and DB2's lock timeout
+	 */
+	public static final Collection<String> DEFAULT_SQL_STATES = Arrays.asList("40001", "40P01", "55P03", "57033");
+
+	private static final Map<String, List<Integer>> DEFAULT_ERROR_CODES = new HashMap<String, List<Integer>>();
+
+	static {
+		DEFAULT_ERROR_CODES.put("mysql", Arrays.asList(1205, 1213));
+		DEFAULT_ERROR_CODES.put("mssql", Arrays.asList(1205, 1222));
+		DEFAULT_ERROR_CODES.put("syb-ase", Arrays.asList(1205, 1222));
+		DEFAULT_ERROR_CODES.put("ora", Arrays.asList(54, 60, 30006));
+		DEFAULT_ERROR_CODES.put("db2", Arrays.asList(-911, -913));
+	}
+
+	private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+	private static final long DEFAULT_MAX_BACKOFF_MILLIS = 30 * 1000;
+
+	private final int maxRetries;
+	private final Random random = new Random();
+	private Collection<String> sqlStates = DEFAULT_SQL_STATES;
+	private Set<Integer> errorCodes;
+	private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+	private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+
+	/**
+	 * recognises transient failures by their SQLState only
+	 *
+	 * @param maxRetries number of times a failed transaction or statement is retried, 0 for never
+	 */
+	public RetryPolicy(int maxRetries) {
+		this(maxRetries, null);
+	}
+
+	/**
+	 * @param maxRetries number of times a failed transaction or statement is retried, 0 for never
+	 * @param dbms selects the vendor error codes, see {@link #defaultErrorCodes}
+	 */
+	public RetryPolicy(int maxRetries, String dbms) {
+		if (maxRetries < 0) {
+			throw new IllegalArgumentException("number of retries cannot be negative");
+		}
+		this.maxRetries = maxRetries;
+		this.errorCodes = new HashSet<Integer>(defaultErrorCodes(dbms));
+	}
+
+	/**
+	 * MySQL (mysql) 1205 and 1213, SQL Server (mssql) and Sybase (syb-ase) 1205 and 1222, Oracle (ora)
+	 * 54, 60 and 30006 and DB2 (db2) -911 and -913; none for other databases, whose transient failures
+	 * are recognised by their SQLState
+	 */
+	public static Collection<Integer> defaultErrorCodes(String dbms) {
+		List<Integer> errorCodes = dbms == null ? null : DEFAULT_ERROR_CODES.get(dbms);
+		return errorCodes == null ? Collections.<Integer>emptyList() : errorCodes;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	/**
+	 * @param retry number of the retry about to be made, starting at 1
+	 */
+	public boolean shouldRetry(Throwable failure, int retry) {
+		return retry <= maxRetries && isTransient(failure);
+	}
+
+	public boolean isTransient(Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLException) {
+				for (SQLException e = (SQLException) cause; e != null; e = e.getNextException()) {
+					if (isTransient(e)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean isTransient(SQLException e) {
+		if (errorCodes.contains(e.getErrorCode())) {
+			return true;
+		}
+
+		String sqlState = e.getSQLState();
+		if (sqlState != null) {
+			for (String transientState : sqlStates) {
+				if (sqlState.startsWith(transientState)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * between half and all of the initial backoff times 2^(retry - 1), at most the maximum backoff
+	 */
+	public long backoffMillis(int retry) {
+		long backoff = maxBackoffMillis;
+		if (retry - 1 < 62 && initialBackoffMillis <= maxBackoffMillis >> (retry - 1)) {
+			backoff = initialBackoffMillis << (retry - 1);
+		}
+
+		long half = backoff / 2;
+		synchronized (random) {
+			return backoff - half + (half > 0 ? (long) (random.nextDouble() * (half + 1)) : 0);
+		}
+	}
+
+	/**
+	 * waits before the retry
+	 *
+	 * @return false if the thread has been interrupted while waiting
+	 */
+	public boolean backoff(int retry) {
+		try {
+			Thread.sleep(backoffMillis(retry));
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * SQLStates, or their first characters, of transient failures, default {@link #DEFAULT_SQL_STATES}
+	 */
+	public void setSqlStates(Collection<String> sqlStates) {
+		this.sqlStates = sqlStates;
+	}
+
+	/**
+	 * vendor error codes of transient failures of the database applied to, default
+	 * {@link #defaultErrorCodes} of the dbms
+	 */
+	public void setErrorCodes(Collection<Integer> errorCodes) {
+		this.errorCodes = new HashSet<Integer>(errorCodes);
+	}
+
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+}
@@ -0,0 +1,118 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Stack of strings that keeps up to a given number of characters in memory. When the limit
+ * is exceeded, the strings in memory are appended to a temporary file, which is read backwards
+ * when they are popped. Each string on disk is stored as its UTF-8 bytes followed by their length.
+ */
+public class SpillToDiskStack {
+	private static final String ENCODING = "UTF-8";
+
+	private final long memoryLimit;
+	private final List<String> inMemory = new ArrayList<String>();
+	private long charactersInMemory;
+	private File file;
+	private RandomAccessFile spilled;
+
+	/**
+	 * @param memoryLimit number of characters kept in memory
+	 */
+	public SpillToDiskStack(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+	}
+
+	public void push(String value) {
+		inMemory.add(value);
+		charactersInMemory += value.length();
+
+		if (charactersInMemory > memoryLimit) {
+			spill();
+		}
+	}
+
+	/**
+	 * @return the most recently pushed string that has not been popped, or null if the stack is empty
+	 */
+	public String pop() {
+		if (!inMemory.isEmpty()) {
+			String value = inMemory.remove(inMemory.size() - 1);
+			charactersInMemory -= value.length();
+			return value;
+		}
+
+		try {
+			if (spilled == null || spilled.length() == 0) {
+				return null;
+			}
+
+			long end = spilled.length();
+			spilled.seek(end - 4);
+			int length = spilled.readInt();
+
+			byte[] bytes = new byte[length];
+			spilled.seek(end - 4 - length);
+			spilled.readFully(bytes);
+			spilled.setLength(end - 4 - length);
+
+			return new String(bytes, ENCODING);
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read from " + file, e);
+		}
+	}
+
+	public boolean isEmpty() {
+		try {
+			return inMemory.isEmpty() && (spilled == null || spilled.length() == 0);
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read from " + file, e);
+		}
+	}
+
+	/**
+	 * deletes the temporary file
+	 */
+	public void close() {
+		if (spilled == null) {
+			return;
+		}
+
+		try {
+			spilled.close();
+		} catch (IOException e) {
+			// deleted anyway
+		}
+		file.delete();
+		spilled = null;
+	}
+
+	private void spill() {
+		try {
+			if (spilled == null) {
+				file = File.createTempFile("dbdeploy", ".stack");
+				file.deleteOnExit();
+				spilled = new RandomAccessFile(file, "rw");
+			}
+
+			spilled.seek(spilled.length());
+
+			for (String value : inMemory) {
+				byte[] bytes = value.getBytes(ENCODING);
+				spilled.write(bytes);
+				spilled.writeInt(bytes.length);
+			}
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to write to " + file, e);
+		}
+
+		inMemory.clear();
+		charactersInMemory = 0;
+	}
+}
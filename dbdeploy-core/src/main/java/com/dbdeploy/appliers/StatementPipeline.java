@@ -0,0 +1,143 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.scripts.Script;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Reads and splits scripts on a separate thread, ahead of the thread applying them.
+ *
+ * Statements are handed over in the order of the scripts through a queue that holds at most
+ * capacity characters, so reading ahead keeps memory bounded however large the scripts are.
+ * A script that cannot be read fails when the applying thread gets to the point where
+ * reading failed, just as it would without reading ahead.
+ */
+class StatementPipeline {
+	private static final Object END_OF_SCRIPT = new Object();
+
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+	private final Semaphore space;
+	private final int capacity;
+	private final Thread reader;
+
+	public StatementPipeline(final List<? extends Script> scripts, final QueryStatementSplitter splitter, int capacity) {
+		this.capacity = capacity;
+		this.space = new Semaphore(capacity);
+		this.reader = new Thread(new Runnable() {
+			public void run() {
+				read(scripts, splitter);
+			}
+		}, "dbdeploy-read-ahead");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * @return the statements of the next script, which have to be read completely before
+	 * the statements of the script after it
+	 */
+	public Iterator<String> nextScript() {
+		return new Iterator<String>() {
+			private Object next;
+			private boolean endOfScript;
+
+			public boolean hasNext() {
+				if (endOfScript) {
+					return false;
+				}
+
+				if (next == null) {
+					next = take();
+				}
+
+				if (next instanceof Failure) {
+					throw ((Failure) next).exception;
+				}
+
+				endOfScript = next == END_OF_SCRIPT;
+				return !endOfScript;
+			}
+
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				String statement = (String) next;
+				next = null;
+				space.release(weight(statement));
+				return statement;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * stops reading ahead, e.g. when a script has failed
+	 */
+	public void close() {
+		reader.interrupt();
+	}
+
+	private void read(List<? extends Script> scripts, QueryStatementSplitter splitter) {
+		try {
+			for (Script script : scripts) {
+				Reader content = script.openContent();
+				try {
+					Iterator<String> statements = splitter.statements(content);
+					while (statements.hasNext()) {
+						String statement = statements.next();
+						space.acquire(weight(statement));
+						queue.put(statement);
+					}
+				} finally {
+					try {
+						content.close();
+					} catch (IOException e) {
+						// nothing left to read
+					}
+				}
+				queue.put(END_OF_SCRIPT);
+			}
+		} catch (InterruptedException e) {
+			// the scripts are no longer applied
+		} catch (RuntimeException e) {
+			queue.add(new Failure(e));
+		}
+	}
+
+	private Object take() {
+		try {
+			return queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting for the next statement", e);
+		}
+	}
+
+	/**
+	 * a statement larger than the capacity takes all of it, so it is read once the queue is empty
+	 */
+	private int weight(String statement) {
+		return Math.min(statement.length(), capacity);
+	}
+
+	private static class Failure {
+		private final RuntimeException exception;
+
+		public Failure(RuntimeException exception) {
+			this.exception = exception;
+		}
+	}
+}
@@ -5,23 +5,19 @@ import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.exceptions.UsageException;
 import com.dbdeploy.scripts.ChangeScript;
 import com.dbdeploy.scripts.Script;
-import freemarker.cache.ClassTemplateLoader;
-import freemarker.cache.FileTemplateLoader;
-import freemarker.cache.MultiTemplateLoader;
-import freemarker.cache.TemplateLoader;
-import freemarker.template.Configuration;
 import freemarker.template.Template;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 
 public class TemplateBasedApplier implements ChangeScriptApplier {
-	private Configuration configuration;
+	private File templateDirectory;
 	private Writer writer;
 	private String syntax;
 	private String changeLogTableName;
@@ -29,6 +25,7 @@ public class TemplateBasedApplier implements ChangeScriptApplier {
 	private DelimiterType delimiterType;
 	private Script preScriptExecutionScript;
 	private Script postScriptExecutionScript;
+	private boolean streaming;
 
 
 	public TemplateBasedApplier(Writer writer, String syntax, String changeLogTableName, String delimiter,
@@ -38,53 +35,77 @@ public class TemplateBasedApplier implements ChangeScriptApplier {
 		this.delimiter = delimiter;
 		this.delimiterType = delimiterType;
 		this.writer = writer;
-		this.configuration = new Configuration();
-
-		FileTemplateLoader fileTemplateLoader = createFileTemplateLoader(templateDirectory);
-		this.configuration.setTemplateLoader(
-			new MultiTemplateLoader(
-				new TemplateLoader[] {
-					fileTemplateLoader,
-					new ClassTemplateLoader(getClass(), "/"),
-				}));
-	}
+		this.templateDirectory = templateDirectory;
 
-	private FileTemplateLoader createFileTemplateLoader(File templateDirectory) throws IOException {
-		if (templateDirectory == null) {
-			return new FileTemplateLoader();
-		} else {
-			return new FileTemplateLoader(templateDirectory, true);
-		}
+		// fails early for an invalid template directory
+		TemplateCache.getConfiguration(templateDirectory);
 	}
 
 	public void apply(List<ChangeScript> changeScripts) {
-		String filename = syntax + "_" + getTemplateQualifier() + ".ftl";
-
 		try {
-			Map<String, Object> model = new HashMap<String, Object>();
-			model.put("scripts", changeScripts);
-			model.put("changeLogTableName", changeLogTableName);
-			model.put("delimiter", delimiter);
-			model.put("separator", (delimiterType == DelimiterType.row) ? "\n" : "");
+			Map<String, Object> model = createModel();
 
 			try {
-				Template template = configuration.getTemplate(filename);
-				template.process(model, writer);
+				Template template = getTemplate(getTemplateQualifier());
+
+				if (streaming) {
+					for (ChangeScript script : changeScripts) {
+						model.put("scripts", Collections.singletonList(script));
+						template.process(model, writer);
+						script.releaseContent();
+					}
+				} else {
+					model.put("scripts", changeScripts);
+					template.process(model, writer);
+				}
 			} finally {
 				writer.close();
 			}
-		} catch (FileNotFoundException ex) {
-			throw new UsageException("Could not find template named " + filename + "\n" +
-				"Check that you have got the name of the database syntax correct.", ex);
+		} catch (UsageException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * @return the model without the scripts
+	 */
+	protected Map<String, Object> createModel() {
+		Map<String, Object> model = new HashMap<String, Object>();
+		model.put("changeLogTableName", changeLogTableName);
+		model.put("delimiter", delimiter);
+		model.put("separator", (delimiterType == DelimiterType.row) ? "\n" : "");
+		return model;
+	}
+
+	protected Template getTemplate(String qualifier) throws IOException {
+		try {
+			return TemplateCache.getTemplate(templateDirectory, syntax, qualifier);
+		} catch (FileNotFoundException ex) {
+			throw new UsageException("Could not find template named " + syntax + "_" + qualifier + ".ftl\n" +
+				"Check that you have got the name of the database syntax correct.", ex);
+		}
+	}
+
+	protected Writer getWriter() {
+		return writer;
+	}
+
 	protected String getTemplateQualifier() {
 		return "apply";
 	}
 
+	/**
+	 * Renders the template once per change script, with a list of just that script, and releases
+	 * its content afterwards, so only one script is held in memory at a time. This gives the same
+	 * output as rendering all scripts at once for templates that consist of the list only,
+	 * like the built-in ones.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
 	public Script getPreScriptExecutionScript() {
 		return preScriptExecutionScript;
 	}
@@ -0,0 +1,86 @@
+package com.dbdeploy.appliers;
+
+import freemarker.cache.ClassTemplateLoader;
+import freemarker.cache.FileTemplateLoader;
+import freemarker.cache.MruCacheStorage;
+import freemarker.cache.MultiTemplateLoader;
+import freemarker.cache.TemplateLoader;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Process-wide FreeMarker configurations, one per template directory, so templates are only
+ * looked up and parsed once for all appliers in the JVM.
+ *
+ * Each configuration keeps the most recently used templates strongly referenced and some more
+ * softly referenced, i.e. until memory gets short. When more than {@value #MAX_DIRECTORIES}
+ * template directories are in use, the configuration of the least recently used one is dropped.
+ */
+public final class TemplateCache {
+	static final int MAX_DIRECTORIES = 16;
+	private static final int STRONGLY_CACHED_TEMPLATES = 20;
+	private static final int SOFTLY_CACHED_TEMPLATES = 200;
+
+	private static final Map<String, Configuration> configurations =
+		new LinkedHashMap<String, Configuration>(MAX_DIRECTORIES, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Configuration> eldest) {
+				return size() > MAX_DIRECTORIES;
+			}
+		};
+
+	private TemplateCache() {
+	}
+
+	/**
+	 * @param templateDirectory directory searched before the built-in templates, or null for the current directory
+	 */
+	public static Template getTemplate(File templateDirectory, String syntax, String qualifier) throws IOException {
+		return getConfiguration(templateDirectory).getTemplate(syntax + "_" + qualifier + ".ftl");
+	}
+
+	public static synchronized Configuration getConfiguration(File templateDirectory) throws IOException {
+		String key = templateDirectory == null ? "" : templateDirectory.getCanonicalPath();
+		Configuration configuration = configurations.get(key);
+
+		if (configuration == null) {
+			configuration = createConfiguration(templateDirectory);
+			configurations.put(key, configuration);
+		}
+
+		return configuration;
+	}
+
+	public static synchronized void clear() {
+		configurations.clear();
+	}
+
+	static synchronized int size() {
+		return configurations.size();
+	}
+
+	private static Configuration createConfiguration(File templateDirectory) throws IOException {
+		Configuration configuration = new Configuration();
+		configuration.setCacheStorage(new MruCacheStorage(STRONGLY_CACHED_TEMPLATES, SOFTLY_CACHED_TEMPLATES));
+		configuration.setTemplateLoader(
+			new MultiTemplateLoader(
+				new TemplateLoader[] {
+					createFileTemplateLoader(templateDirectory),
+					new ClassTemplateLoader(TemplateCache.class, "/"),
+				}));
+		return configuration;
+	}
+
+	private static FileTemplateLoader createFileTemplateLoader(File templateDirectory) throws IOException {
+		if (templateDirectory == null) {
+			return new FileTemplateLoader();
+		} else {
+			return new FileTemplateLoader(templateDirectory, true);
+		}
+	}
+}
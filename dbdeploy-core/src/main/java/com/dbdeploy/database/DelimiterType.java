@@ -17,6 +17,17 @@ public enum DelimiterType {
         public boolean matches(String line, String delimiter) {
             return line.equals(delimiter);
         }
+    },
+
+    /**
+     * Delimiter is interpreted wherever it appears outside of literals, comments and
+     * PL/SQL blocks, see {@link SqlLexer}. Lines are not matched individually.
+     */
+    sql {
+        public boolean matches(String line, String delimiter) {
+            throw new UnsupportedOperationException("Delimiter type sql does not match lines, "
+                    + "statements are split by SqlLexer");
+        }
     };
 
     public abstract boolean matches(String line, String delimiter);
@@ -1,12 +1,16 @@
 package com.dbdeploy.database;
 
+import com.dbdeploy.exceptions.DbDeployException;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.text.StrBuilder;
-import org.apache.commons.lang.text.StrMatcher;
-import org.apache.commons.lang.text.StrTokenizer;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 public class QueryStatementSplitter {
     private String delimiter = ";";
@@ -18,30 +22,110 @@ public class QueryStatementSplitter {
 
     public List<String> split(String input) {
         List<String> statements = new ArrayList<String>();
-        StrBuilder currentSql = new StrBuilder();
+        Iterator<String> iterator = statements(new StringReader(input));
 
-        StrTokenizer lineTokenizer = new StrTokenizer(input);
-        lineTokenizer.setDelimiterMatcher(StrMatcher.charSetMatcher("\r\n"));
+        while (iterator.hasNext()) {
+            statements.add(iterator.next());
+        }
+
+        return statements;
+    }
+
+    /**
+     * Reads the statements one at a time, so only the current statement is kept in memory.
+     * The reader is not closed.
+     */
+    public Iterator<String> statements(Reader input) {
+        if (delimiterType == DelimiterType.sql) {
+            return new SqlLexer(input, delimiter, lineEnding);
+        }
+        return new StatementIterator(input);
+    }
+
+    private class StatementIterator implements Iterator<String> {
+        private final Reader reader;
+        private final StringBuilder line = new StringBuilder();
+        private final StringBuilder currentSql = new StringBuilder();
+        private String nextStatement;
+        private boolean endOfInput;
+
+        public StatementIterator(Reader reader) {
+            this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+        }
+
+        public boolean hasNext() {
+            if (nextStatement == null && !endOfInput) {
+                nextStatement = readStatement();
+            }
+            return nextStatement != null;
+        }
 
-        for (String line : lineTokenizer.getTokenArray()) {
-	        String strippedLine = StringUtils.stripEnd(line, null);
-            if (!currentSql.isEmpty()) {
-                currentSql.append(lineEnding.get());
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String statement = nextStatement;
+            nextStatement = null;
+            return statement;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private String readStatement() {
+            while (readLine()) {
+                String strippedLine = StringUtils.stripEnd(line.toString(), null);
+                if (currentSql.length() > 0) {
+                    currentSql.append(lineEnding.get());
+                }
+
+                currentSql.append(strippedLine);
+
+                if (delimiterType.matches(strippedLine, delimiter)) {
+                    String statement = currentSql.substring(0, currentSql.length() - delimiter.length());
+                    currentSql.setLength(0);
+                    return statement;
+                }
             }
 
-            currentSql.append(strippedLine);
+            endOfInput = true;
 
-           if (delimiterType.matches(strippedLine, delimiter)) {
-                statements.add(currentSql.substring(0, currentSql.length() - delimiter.length()));
-                currentSql.clear();
+            if (currentSql.length() > 0) {
+                String statement = currentSql.toString();
+                currentSql.setLength(0);
+                return statement;
             }
+
+            return null;
         }
 
-        if (!currentSql.isEmpty()) {
-            statements.add(currentSql.toString());
+        /**
+         * lines are separated by any sequence of CR and LF characters, empty lines are skipped
+         */
+        private boolean readLine() {
+            line.setLength(0);
+
+            try {
+                for (;;) {
+                    int c = reader.read();
+
+                    if (c == -1) {
+                        return line.length() > 0;
+                    }
+
+                    if (c == '\r' || c == '\n') {
+                        if (line.length() > 0) {
+                            return true;
+                        }
+                    } else {
+                        line.append((char) c);
+                    }
+                }
+            } catch (IOException e) {
+                throw new DbDeployException("Failed to read script", e);
+            }
         }
-        
-        return statements;
     }
 
     public String getDelimiter() {
@@ -0,0 +1,532 @@
+package com.dbdeploy.database;
+
+import com.dbdeploy.exceptions.DbDeployException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Splits statements character by character for {@link DelimiterType#sql}.
+ *
+ * The delimiter is only recognised outside of string literals, quoted identifiers, comments and
+ * PostgreSQL dollar-quoted strings. PL/SQL blocks, i.e. anonymous blocks and
+ * CREATE FUNCTION, PROCEDURE, PACKAGE, TRIGGER and TYPE BODY statements with a body, are only
+ * ended by a line containing a single /, like in SQL*Plus, which also ends any other statement.
+ * A body given as a string, like PostgreSQL's AS '...', or starting with a plain statement, like
+ * T-SQL's AS SELECT ..., does not make a block.
+ *
+ * A delimiter that is a word, like GO, only counts on a line of its own, in any case, and then
+ * ends any statement, including blocks.
+ *
+ * Statements are built in a single buffer, without copying the input line by line. Line
+ * endings are converted to the output line ending, leading and trailing whitespace is removed
+ * and statements consisting of comments only are skipped.
+ */
+class SqlLexer implements Iterator<String> {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_WORDS = 6;
+
+	/**
+	 * words after IS or AS that start a statement or call spec rather than a PL/SQL body
+	 */
+	private static final Set<String> NOT_A_BLOCK_BODY = new HashSet<String>(Arrays.asList(
+		"SELECT", "INSERT", "UPDATE", "DELETE", "MERGE", "WITH", "SET", "EXEC", "EXECUTE", "RETURN", "IF",
+		"WHILE", "PRINT", "TRUNCATE", "LANGUAGE", "EXTERNAL"));
+
+	private enum State { CODE, LINE_COMMENT, BLOCK_COMMENT, STRING, QUOTED_IDENTIFIER, BACKTICK_IDENTIFIER, DOLLAR_QUOTE }
+
+	private final Reader reader;
+	private final String delimiter;
+	private final boolean wordDelimiter;
+	private final LineEnding lineEnding;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private boolean endOfInput;
+
+	private final StringBuilder sql = new StringBuilder();
+	private final String[] words = new String[MAX_WORDS];
+	private final char[] word = new char[16];
+	private int wordLength;
+	private int wordCount;
+	private boolean blockKeywordSeen;
+	private boolean bodyKeywordSeen;
+	private boolean dollarQuoteSeen;
+	private boolean hasCode;
+	private boolean lineStart = true;
+	private String dollarTag;
+
+	private String nextStatement;
+
+	public SqlLexer(Reader reader, String delimiter, LineEnding lineEnding) {
+		this.reader = reader;
+		this.delimiter = delimiter;
+		this.wordDelimiter = isIdentifier(delimiter);
+		this.lineEnding = lineEnding;
+	}
+
+	public boolean hasNext() {
+		if (nextStatement == null && !(endOfInput && position == limit)) {
+			try {
+				nextStatement = readStatement();
+			} catch (IOException e) {
+				throw new DbDeployException("Failed to read script", e);
+			}
+		}
+		return nextStatement != null;
+	}
+
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		String statement = nextStatement;
+		nextStatement = null;
+		return statement;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	private String readStatement() throws IOException {
+		State state = State.CODE;
+		startStatement();
+
+		for (;;) {
+			if (state == State.CODE && lineStart && (slashLineFollows() || wordDelimiterLineFollows())) {
+				String statement = endStatement();
+				if (statement != null) {
+					return statement;
+				}
+				continue;
+			}
+
+			int c = peek(0);
+
+			if (c == -1) {
+				return endStatement();
+			}
+
+			if (c == '\r' || c == '\n') {
+				int length = (c == '\r' && peek(1) == '\n') ? 2 : 1;
+				position += length;
+				if (state == State.LINE_COMMENT) {
+					state = State.CODE;
+				}
+				if (state == State.CODE) {
+					endWord();
+				}
+				if (sql.length() > 0) {
+					sql.append(lineEnding.get());
+				}
+				lineStart = true;
+				continue;
+			}
+
+			lineStart = false;
+
+			switch (state) {
+				case CODE:
+					if (matchesDelimiter()) {
+						if (inBlock()) {
+							code(delimiter.length());
+							continue;
+						}
+
+						position += delimiter.length();
+						String statement = endStatement();
+						if (statement != null) {
+							return statement;
+						}
+						continue;
+					}
+
+					if (c == '-' && peek(1) == '-') {
+						state = State.LINE_COMMENT;
+						endWord();
+						consume(2);
+					} else if (c == '/' && peek(1) == '*') {
+						state = State.BLOCK_COMMENT;
+						endWord();
+						consume(2);
+					} else if (c == '\'') {
+						state = State.STRING;
+						noBlockBody();
+						code(1);
+					} else if (c == '"') {
+						state = State.QUOTED_IDENTIFIER;
+						noBlockBody();
+						code(1);
+					} else if (c == '`') {
+						state = State.BACKTICK_IDENTIFIER;
+						noBlockBody();
+						code(1);
+					} else if (c == '$' && wordLength == 0 && startsDollarQuote()) {
+						state = State.DOLLAR_QUOTE;
+						dollarQuoteSeen = true;
+						noBlockBody();
+						code(dollarTag.length());
+					} else if (isIdentifierPart(c)) {
+						addToWord((char) c);
+						code(1);
+					} else {
+						endWord();
+						if (Character.isWhitespace(c)) {
+							consume(1);
+						} else {
+							noBlockBody();
+							code(1);
+						}
+					}
+					break;
+
+				case LINE_COMMENT:
+					consume(1);
+					break;
+
+				case BLOCK_COMMENT:
+					if (c == '*' && peek(1) == '/') {
+						state = State.CODE;
+						consume(2);
+					} else {
+						consume(1);
+					}
+					break;
+
+				case STRING:
+					state = quoted(c, '\'', state);
+					break;
+
+				case QUOTED_IDENTIFIER:
+					state = quoted(c, '"', state);
+					break;
+
+				case BACKTICK_IDENTIFIER:
+					state = quoted(c, '`', state);
+					break;
+
+				case DOLLAR_QUOTE:
+					if (c == '$' && matches(dollarTag)) {
+						state = State.CODE;
+						code(dollarTag.length());
+					} else {
+						code(1);
+					}
+					break;
+			}
+		}
+	}
+
+	/**
+	 * quotes are escaped by doubling them
+	 */
+	private State quoted(int c, char quote, State state) throws IOException {
+		if (c != quote) {
+			code(1);
+			return state;
+		}
+
+		if (peek(1) == quote) {
+			code(2);
+			return state;
+		}
+
+		code(1);
+		return State.CODE;
+	}
+
+	private void startStatement() {
+		sql.setLength(0);
+		wordLength = 0;
+		wordCount = 0;
+		blockKeywordSeen = false;
+		bodyKeywordSeen = false;
+		dollarQuoteSeen = false;
+		hasCode = false;
+	}
+
+	/**
+	 * @return the statement, or null if it only consisted of whitespace and comments
+	 */
+	private String endStatement() {
+		int length = sql.length();
+		while (length > 0 && Character.isWhitespace(sql.charAt(length - 1))) {
+			length--;
+		}
+		sql.setLength(length);
+
+		String statement = hasCode ? sql.toString() : null;
+		startStatement();
+		return statement;
+	}
+
+	/**
+	 * appends characters that are part of the statement
+	 */
+	private void code(int count) {
+		for (int i = 0; i < count; i++) {
+			sql.append(buffer[position++]);
+		}
+		hasCode = true;
+	}
+
+	/**
+	 * appends whitespace and comments, apart from leading whitespace
+	 */
+	private void consume(int count) {
+		for (int i = 0; i < count; i++) {
+			char c = buffer[position++];
+			if (sql.length() > 0 || !Character.isWhitespace(c)) {
+				sql.append(c);
+			}
+		}
+	}
+
+	private void addToWord(char c) {
+		if (wordLength < word.length) {
+			word[wordLength] = Character.toUpperCase(c);
+		}
+		wordLength++;
+	}
+
+	private void endWord() {
+		if (wordLength == 0) {
+			return;
+		}
+
+		if (wordCount < MAX_WORDS) {
+			words[wordCount] = wordLength <= word.length ? new String(word, 0, wordLength) : "";
+		}
+
+		// the word after IS or AS tells whether a PL/SQL body follows
+		if (bodyKeywordSeen) {
+			bodyKeywordSeen = false;
+			if (wordLength > word.length || !NOT_A_BLOCK_BODY.contains(new String(word, 0, wordLength))) {
+				blockKeywordSeen = true;
+			}
+		}
+
+		if (isWord("IS") || isWord("AS")) {
+			bodyKeywordSeen = true;
+		} else if (isWord("BEGIN") || isWord("DECLARE")) {
+			blockKeywordSeen = true;
+		}
+
+		wordCount++;
+		wordLength = 0;
+	}
+
+	/**
+	 * a string, dollar quote or anything else but a word after IS or AS is not a PL/SQL body
+	 */
+	private void noBlockBody() {
+		bodyKeywordSeen = false;
+	}
+
+	private boolean isWord(String keyword) {
+		if (wordLength != keyword.length()) {
+			return false;
+		}
+		for (int i = 0; i < wordLength; i++) {
+			if (word[i] != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String word(int index) {
+		return index < Math.min(wordCount, MAX_WORDS) ? words[index] : null;
+	}
+
+	private boolean inBlock() {
+		endWord();
+
+		if (dollarQuoteSeen || wordCount == 0) {
+			return false;
+		}
+
+		if ("DECLARE".equals(word(0))) {
+			return true;
+		}
+
+		if ("BEGIN".equals(word(0))) {
+			String next = word(1);
+			return next != null && !next.equals("TRANSACTION") && !next.equals("WORK") && !next.equals("TRAN")
+				&& !next.equals("ISOLATION") && !next.equals("DEFERRED") && !next.equals("IMMEDIATE")
+				&& !next.equals("EXCLUSIVE");
+		}
+
+		if ("CREATE".equals(word(0))) {
+			int i = 1;
+			if ("OR".equals(word(i)) && "REPLACE".equals(word(i + 1))) {
+				i += 2;
+			}
+			if ("EDITIONABLE".equals(word(i)) || "NONEDITIONABLE".equals(word(i))) {
+				i++;
+			}
+
+			String type = word(i);
+			if ("FUNCTION".equals(type) || "PROCEDURE".equals(type) || "PACKAGE".equals(type) || "TRIGGER".equals(type)) {
+				return blockKeywordSeen;
+			}
+			return "TYPE".equals(type) && "BODY".equals(word(i + 1));
+		}
+
+		return false;
+	}
+
+	/**
+	 * a dollar quote starts with $tag$, where the tag is empty or an identifier
+	 */
+	private boolean startsDollarQuote() throws IOException {
+		int i = 1;
+		int c = peek(i);
+
+		if (c != '$' && !(Character.isLetter(c) || c == '_')) {
+			return false;
+		}
+
+		while (c != '$') {
+			if (!(Character.isLetterOrDigit(c) || c == '_') || i >= 64) {
+				return false;
+			}
+			c = peek(++i);
+		}
+
+		dollarTag = new String(buffer, position, i + 1);
+		return true;
+	}
+
+	/**
+	 * a line consisting of a single / (and whitespace), which is consumed
+	 */
+	private boolean slashLineFollows() throws IOException {
+		int i = 0;
+		int c = peek(i);
+
+		while (c == ' ' || c == '\t') {
+			c = peek(++i);
+		}
+
+		if (c != '/') {
+			return false;
+		}
+
+		c = peek(++i);
+		while (c == ' ' || c == '\t') {
+			c = peek(++i);
+		}
+
+		if (c != -1 && c != '\r' && c != '\n') {
+			return false;
+		}
+
+		position += i;
+		return true;
+	}
+
+	/**
+	 * a line consisting of the word delimiter (and whitespace), in any case, which is consumed
+	 */
+	private boolean wordDelimiterLineFollows() throws IOException {
+		if (!wordDelimiter) {
+			return false;
+		}
+
+		int i = 0;
+		int c = peek(i);
+
+		while (c == ' ' || c == '\t') {
+			c = peek(++i);
+		}
+
+		for (int j = 0; j < delimiter.length(); j++) {
+			if (c == -1 || Character.toUpperCase((char) c) != Character.toUpperCase(delimiter.charAt(j))) {
+				return false;
+			}
+			c = peek(++i);
+		}
+
+		while (c == ' ' || c == '\t') {
+			c = peek(++i);
+		}
+
+		if (c != -1 && c != '\r' && c != '\n') {
+			return false;
+		}
+
+		position += i;
+		return true;
+	}
+
+	/**
+	 * word delimiters are only recognised on a line of their own, see {@link #wordDelimiterLineFollows}
+	 */
+	private boolean matchesDelimiter() throws IOException {
+		return !wordDelimiter && matches(delimiter);
+	}
+
+	private boolean matches(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			if (peek(i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isIdentifier(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isLetterOrDigit(text.charAt(i)) && text.charAt(i) != '_') {
+				return false;
+			}
+		}
+		return text.length() > 0;
+	}
+
+	private static boolean isIdentifierPart(int c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+	}
+
+	/**
+	 * @return the character at the given offset from the current position, or -1 at the end of the input
+	 */
+	private int peek(int offset) throws IOException {
+		while (position + offset >= limit) {
+			if (endOfInput || !fill()) {
+				return -1;
+			}
+		}
+		return buffer[position + offset];
+	}
+
+	private boolean fill() throws IOException {
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+
+		if (limit == buffer.length) {
+			return false;
+		}
+
+		int read = reader.read(buffer, limit, buffer.length - limit);
+		if (read == -1) {
+			endOfInput = true;
+			return false;
+		}
+
+		limit += read;
+		return true;
+	}
+}
@@ -0,0 +1,19 @@
+package com.dbdeploy.database;
+
+public enum TransactionMode {
+	/**
+	 * Every statement is committed on its own (autocommit)
+	 */
+	statement,
+
+	/**
+	 * Change scripts are committed together with their changelog entry,
+	 * one or more scripts per transaction
+	 */
+	script,
+
+	/**
+	 * All change scripts of a run are committed in a single transaction
+	 */
+	run
+}
@@ -0,0 +1,110 @@
+package com.dbdeploy.database.changelog;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ids and checksums of the changes applied to the database, ordered by id.
+ *
+ * This is all that is needed to plan a deployment, so it is kept in primitive
+ * arrays instead of a list of {@link ChangeLogEntry}s.
+ */
+public class AppliedChanges {
+	private static final int INITIAL_CAPACITY = 256;
+
+	private long[] ids = new long[INITIAL_CAPACITY];
+	private String[] checksums = new String[INITIAL_CAPACITY];
+	private int size;
+	private boolean sorted = true;
+
+	public void add(long id, String checksum) {
+		if (size == ids.length) {
+			grow();
+		}
+
+		if (size > 0 && id < ids[size - 1]) {
+			sorted = false;
+		}
+
+		ids[size] = id;
+		checksums[size] = checksum;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getId(int index) {
+		sort();
+		return ids[index];
+	}
+
+	public String getChecksum(int index) {
+		sort();
+		return checksums[index];
+	}
+
+	/**
+	 * @return an ordered view of the ids, e.g. for printing
+	 */
+	public List<Long> getIds() {
+		sort();
+		return new AbstractList<Long>() {
+			@Override
+			public Long get(int index) {
+				return ids[index];
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private void grow() {
+		long[] newIds = new long[ids.length * 2];
+		String[] newChecksums = new String[checksums.length * 2];
+		System.arraycopy(ids, 0, newIds, 0, size);
+		System.arraycopy(checksums, 0, newChecksums, 0, size);
+		ids = newIds;
+		checksums = newChecksums;
+	}
+
+	/**
+	 * the changelog is read in order, so this only has to do work for
+	 * changes that have been added out of order
+	 */
+	private void sort() {
+		if (sorted) {
+			return;
+		}
+
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer index, Integer other) {
+				long id = ids[index];
+				long otherId = ids[other];
+				return id < otherId ? -1 : (id == otherId ? 0 : 1);
+			}
+		});
+
+		long[] sortedIds = new long[ids.length];
+		String[] sortedChecksums = new String[checksums.length];
+		for (int i = 0; i < size; i++) {
+			sortedIds[i] = ids[order[i]];
+			sortedChecksums[i] = checksums[order[i]];
+		}
+
+		ids = sortedIds;
+		checksums = sortedChecksums;
+		sorted = true;
+	}
+}
@@ -0,0 +1,387 @@
+package com.dbdeploy.database.changelog;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+
+/**
+ * A small pool of connections, opened through the {@link DriverManager} or taken from another
+ * {@link DataSource}, for processes that run dbdeploy more than once or need several connections.
+ *
+ * Closing a connection obtained from the pool returns it to the pool, after rolling back
+ * uncommitted work and switching back to auto commit. Idle connections are validated before
+ * they are handed out again, with the validation query if one is set, and closed once they
+ * have been idle for longer than the idle timeout. At most maxSize connections are open at
+ * any time; further requests wait up to the maximum wait for a connection to be returned.
+ *
+ * Connections are validated, opened and closed without holding the lock of the pool, so a
+ * connection that does not respond only holds up the thread using it.
+ */
+public class ConnectionPool implements DataSource {
+	private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+	private final DataSource dataSource;
+	private final String url;
+	private final String username;
+	private final String password;
+	private final int maxSize;
+
+	private final LinkedList<IdleConnection> idleConnections = new LinkedList<IdleConnection>();
+	private int openConnections;
+	private boolean closed;
+
+	private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+	private String validationQuery;
+	private long maxWaitMillis;
+	private PrintWriter logWriter;
+
+	public ConnectionPool(String url, String username, String password, int maxSize) {
+		this(null, url, username, password, maxSize);
+	}
+
+	public ConnectionPool(DataSource dataSource, int maxSize) {
+		this(dataSource, null, null, null, maxSize);
+	}
+
+	private ConnectionPool(DataSource dataSource, String url, String username, String password, int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("pool size has to be at least 1");
+		}
+		this.dataSource = dataSource;
+		this.url = url;
+		this.username = username;
+		this.password = password;
+		this.maxSize = maxSize;
+	}
+
+	public Connection getConnection() throws SQLException {
+		return proxy(borrow());
+	}
+
+	/**
+	 * all connections of a pool use the same credentials
+	 */
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLException("the credentials of pooled connections cannot be changed");
+	}
+
+	/**
+	 * closes the idle connections; connections in use are closed when they are returned
+	 */
+	public void close() {
+		List<Connection> idle = new ArrayList<Connection>();
+
+		synchronized (this) {
+			closed = true;
+			while (!idleConnections.isEmpty()) {
+				idle.add(idleConnections.removeFirst().connection);
+			}
+			notifyAll();
+		}
+
+		for (Connection connection : idle) {
+			discard(connection);
+		}
+	}
+
+	public synchronized int getOpenConnections() {
+		return openConnections;
+	}
+
+	public synchronized int getIdleConnections() {
+		return idleConnections.size();
+	}
+
+	/**
+	 * connections idle for longer than this are closed instead of being reused, default 10 minutes
+	 */
+	public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	/**
+	 * query executed on an idle connection before it is reused, e.g. SELECT 1 or VALUES 1;
+	 * without one a connection is only checked for having been closed
+	 */
+	public void setValidationQuery(String validationQuery) {
+		this.validationQuery = validationQuery;
+	}
+
+	/**
+	 * milliseconds to wait for a connection when all of them are in use, 0 (the default) to wait
+	 * indefinitely
+	 */
+	public void setMaxWaitMillis(long maxWaitMillis) {
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	public int getLoginTimeout() throws SQLException {
+		if (dataSource != null) {
+			return dataSource.getLoginTimeout();
+		}
+		return DriverManager.getLoginTimeout();
+	}
+
+	/**
+	 * seconds to wait for the database when opening a connection, set on the other data source or
+	 * else on the {@link DriverManager}
+	 */
+	public void setLoginTimeout(int seconds) throws SQLException {
+		if (dataSource != null) {
+			dataSource.setLoginTimeout(seconds);
+		} else {
+			DriverManager.setLoginTimeout(seconds);
+		}
+	}
+
+	public PrintWriter getLogWriter() {
+		return logWriter;
+	}
+
+	public void setLogWriter(PrintWriter logWriter) {
+		this.logWriter = logWriter;
+	}
+
+	public Logger getParentLogger() {
+		throw new UnsupportedOperationException("the connection pool does not log");
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("not a wrapper for " + iface.getName());
+	}
+
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	/**
+	 * idle connections are taken out of the pool before they are validated or closed, and still
+	 * count as open until they have been closed
+	 */
+	private Connection borrow() throws SQLException {
+		long deadline = maxWaitMillis > 0 ? System.currentTimeMillis() + maxWaitMillis : 0;
+
+		for (;;) {
+			List<Connection> expired;
+			Connection idle = null;
+			boolean mayOpen = false;
+
+			synchronized (this) {
+				if (closed) {
+					throw new SQLException("the connection pool has been closed");
+				}
+
+				expired = takeExpiredIdleConnections();
+				if (!idleConnections.isEmpty()) {
+					// the most recently returned connection is reused first, so the others time out
+					idle = idleConnections.removeLast().connection;
+				} else if (openConnections < maxSize) {
+					openConnections++;
+					mayOpen = true;
+				} else if (expired.isEmpty()) {
+					waitForReturnedConnection(deadline);
+					continue;
+				}
+			}
+
+			for (Connection connection : expired) {
+				discard(connection);
+			}
+
+			if (idle != null) {
+				if (isValid(idle)) {
+					return idle;
+				}
+				discard(idle);
+			} else if (mayOpen) {
+				return openCounted();
+			}
+		}
+	}
+
+	/**
+	 * opens a connection that has already been counted as open
+	 */
+	private Connection openCounted() throws SQLException {
+		try {
+			return open();
+		} catch (SQLException e) {
+			connectionClosed();
+			throw e;
+		} catch (RuntimeException e) {
+			connectionClosed();
+			throw e;
+		}
+	}
+
+	private void waitForReturnedConnection(long deadline) throws SQLException {
+		try {
+			if (deadline == 0) {
+				wait();
+				return;
+			}
+
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				throw new SQLException("timed out waiting for one of " + maxSize + " pooled connections");
+			}
+			wait(remaining);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("interrupted while waiting for a pooled connection");
+		}
+	}
+
+	private List<Connection> takeExpiredIdleConnections() {
+		List<Connection> expired = new ArrayList<Connection>();
+		long now = System.currentTimeMillis();
+
+		for (Iterator<IdleConnection> it = idleConnections.iterator(); it.hasNext();) {
+			IdleConnection idle = it.next();
+			if (now - idle.since > idleTimeoutMillis) {
+				it.remove();
+				expired.add(idle.connection);
+			}
+		}
+
+		return expired;
+	}
+
+	private boolean isValid(Connection connection) {
+		try {
+			if (connection.isClosed()) {
+				return false;
+			}
+
+			if (validationQuery != null) {
+				Statement statement = connection.createStatement();
+				try {
+					statement.execute(validationQuery);
+				} finally {
+					statement.close();
+				}
+			}
+
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private Connection open() throws SQLException {
+		if (dataSource != null) {
+			return dataSource.getConnection();
+		}
+		return DriverManager.getConnection(url, username, password);
+	}
+
+	private void release(Connection connection) {
+		try {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			discard(connection);
+			return;
+		}
+
+		synchronized (this) {
+			if (!closed) {
+				idleConnections.addLast(new IdleConnection(connection, System.currentTimeMillis()));
+				notifyAll();
+				return;
+			}
+		}
+
+		discard(connection);
+	}
+
+	private void discard(Connection connection) {
+		closeQuietly(connection);
+		connectionClosed();
+	}
+
+	private synchronized void connectionClosed() {
+		openConnections--;
+		notifyAll();
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			// the connection is discarded anyway
+		}
+	}
+
+	/**
+	 * wraps the connection so that closing it returns it to the pool
+	 */
+	private Connection proxy(final Connection connection) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+			new InvocationHandler() {
+				private boolean returned;
+
+				public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					String name = method.getName();
+
+					if (method.getDeclaringClass() == Object.class) {
+						return method.invoke(connection, args);
+					}
+
+					if (name.equals("close")) {
+						if (!returned) {
+							returned = true;
+							release(connection);
+						}
+						return null;
+					}
+
+					if (name.equals("isClosed") && returned) {
+						return true;
+					}
+
+					if (returned) {
+						throw new SQLException("the connection has been returned to the pool");
+					}
+
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}
+			});
+	}
+
+	private static class IdleConnection {
+		private final Connection connection;
+		private final long since;
+
+		public IdleConnection(Connection connection, long since) {
+			this.connection = connection;
+			this.since = since;
+		}
+	}
+}
@@ -9,16 +9,21 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class is responsible for all interaction with the changelog table
  */
 public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
+    private static final int FETCH_SIZE = 1000;
 
     private final QueryExecuter queryExecuter;
     private final String changeLogTableName;
     private CurrentTimeProvider timeProvider = new CurrentTimeProvider();
+    private boolean recordsProgress;
+    private Boolean progressColumns;
 
     public DatabaseSchemaVersionManager(QueryExecuter queryExecuter, String changeLogTableName) {
         this.queryExecuter = queryExecuter;
@@ -39,18 +44,20 @@ public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
 	public List<ChangeLogEntry> findChangeLogEntries() {
 		try {
 			ResultSet rs = queryExecuter.executeQuery(
-					"SELECT * FROM " + changeLogTableName + "  ORDER BY change_number");
+					"SELECT * FROM " + changeLogTableName + appliedOnly() + "  ORDER BY change_number");
 			
 			List<ChangeLogEntry> changeLogsEntries = new ArrayList<ChangeLogEntry>();
 			
-			while (rs.next()) {
-				final ChangeLogEntry changeLogEntry = new ChangeLogEntry(
-						rs.getLong(1), rs.getTimestamp(2), rs.getString(3), rs.getString(4), rs.getString(5));
-				changeLogsEntries.add(changeLogEntry);
+			try {
+				while (rs.next()) {
+					final ChangeLogEntry changeLogEntry = new ChangeLogEntry(
+							rs.getLong(1), rs.getTimestamp(2), rs.getString(3), rs.getString(4), rs.getString(5));
+					changeLogsEntries.add(changeLogEntry);
+				}
+			} finally {
+				QueryExecuter.closeQuietly(rs);
 			}
 			
-			rs.close();
-			
 			return changeLogsEntries;
 		} catch (SQLException e) {
 			throw new SchemaVersionTrackingException("Could not retrieve change log entry from database because: "
@@ -58,6 +65,87 @@ public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
 		}
 	}
 	
+	public AppliedChanges findAppliedChanges() {
+		try {
+			ResultSet rs = queryExecuter.executeQuery(
+					"SELECT change_number, checksum FROM " + changeLogTableName + appliedOnly() + " ORDER BY change_number",
+					FETCH_SIZE);
+
+			AppliedChanges appliedChanges = new AppliedChanges();
+
+			try {
+				while (rs.next()) {
+					appliedChanges.add(rs.getLong(1), rs.getString(2));
+				}
+			} finally {
+				QueryExecuter.closeQuietly(rs);
+			}
+
+			return appliedChanges;
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not retrieve change log entry from database because: "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return the progress of the change scripts that failed after some of their statements had
+	 * been committed, by change number
+	 */
+	public Map<Long, ScriptProgress> findScriptProgress() {
+		if (!hasProgressColumns()) {
+			return new HashMap<Long, ScriptProgress>();
+		}
+
+		try {
+			ResultSet rs = queryExecuter.executeQuery(
+					"SELECT change_number, completed_statements, statements_digest FROM " + changeLogTableName
+							+ " WHERE completed_statements IS NOT NULL");
+
+			Map<Long, ScriptProgress> progress = new HashMap<Long, ScriptProgress>();
+
+			try {
+				while (rs.next()) {
+					progress.put(rs.getLong(1), new ScriptProgress(rs.getInt(2), rs.getString(3)));
+				}
+			} finally {
+				QueryExecuter.closeQuietly(rs);
+			}
+
+			return progress;
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not retrieve the progress of change scripts from database "
+					+ "because: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * rows with progress are left out whenever the changelog table has the columns, so runs that
+	 * do not record progress do not take partially applied change scripts as applied either
+	 */
+	private String appliedOnly() {
+		return hasProgressColumns() ? " WHERE completed_statements IS NULL" : "";
+	}
+
+	private boolean hasProgressColumns() {
+		if (progressColumns == null) {
+			try {
+				progressColumns = queryExecuter.hasColumn(changeLogTableName, "completed_statements");
+			} catch (SQLException e) {
+				throw new SchemaVersionTrackingException("Could not read the columns of the change log table because: "
+						+ e.getMessage(), e);
+			}
+		}
+
+		if (recordsProgress && !progressColumns) {
+			throw new SchemaVersionTrackingException("The change log table " + changeLogTableName + " has no "
+					+ "completed_statements and statements_digest columns to record the progress of change scripts in; "
+					+ "add them with the upgradeSchemaVersionTable script for your dbms");
+		}
+
+		return progressColumns;
+	}
+
     public String getChangelogDeleteSql(ChangeScript script) {
 		return String.format(
 			"DELETE FROM " + changeLogTableName + " WHERE change_number = %d",
@@ -81,6 +169,53 @@ public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
         }
     }
 
+    /**
+     * records that the first statements of a change script have been committed, replacing the progress
+     * recorded before
+     */
+    public void recordScriptProgress(ChangeScript script, int completedStatements, String digest) {
+        removeScriptProgress(script);
+        try {
+            queryExecuter.execute(
+                    "INSERT INTO " + changeLogTableName + " (change_number, complete_dt, applied_by, description, " +
+                            "checksum, completed_statements, statements_digest) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    script.getId(),
+                    new Timestamp(timeProvider.now().getTime()),
+                    queryExecuter.getDatabaseUsername(),
+                    script.getDescription(),
+                    script.getChecksum(),
+                    completedStatements,
+                    digest
+                    );
+        } catch (final SQLException e) {
+            throw new SchemaVersionTrackingException("Could not record the progress of change script " + script +
+                    " because: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * forgets the progress of a change script, before it is recorded as applied
+     */
+    public void removeScriptProgress(ChangeScript script) {
+        try {
+            queryExecuter.execute(
+                    "DELETE FROM " + changeLogTableName + " WHERE change_number = ? AND completed_statements IS NOT NULL",
+                    script.getId());
+        } catch (final SQLException e) {
+            throw new SchemaVersionTrackingException("Could not update change log because: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * whether the progress of change scripts that failed after some of their statements had been
+     * committed is recorded, in the completed_statements and statements_digest columns of the
+     * changelog table; reading the changelog fails if the table does not have them
+     */
+    public void setRecordsProgress(boolean recordsProgress) {
+        this.recordsProgress = recordsProgress;
+    }
+
     public void setTimeProvider(final CurrentTimeProvider timeProvider) {
         this.timeProvider = timeProvider;
     }
@@ -1,45 +1,267 @@
 package com.dbdeploy.database.changelog;
 
+import com.dbdeploy.exceptions.StatementTimeoutException;
 import java.sql.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import javax.sql.DataSource;
 
+/**
+ * Executes SQL on one connection.
+ *
+ * Statements without parameters are all executed with the same {@link Statement}, and prepared
+ * statements are kept in a least recently used cache, so repeated statements like the changelog
+ * insert are only parsed once by the database. Both are closed together with the connection.
+ * Queries get a statement of their own, which is closed together with the result set.
+ *
+ * With a timeout set, every statement is given that time through {@link Statement#setQueryTimeout}
+ * and is cancelled by a {@link StatementWatchdog} if the driver does not stop it in time. Either
+ * way it fails with a {@link StatementTimeoutException}.
+ */
 public class QueryExecuter {
+	private static final int DEFAULT_STATEMENT_CACHE_SIZE = 16;
+
 	private final Connection connection;
     private final String username;
+	private final StatementCache preparedStatements = new StatementCache();
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	private Statement statement;
+	private long timeoutMillis;
+	private boolean timeoutsUsed;
+	private StatementWatchdog watchdog;
 
     public QueryExecuter(String connectionString, String username, String password) throws SQLException {
         this.username = username;
         connection = DriverManager.getConnection(connectionString, username, password);
 	}
 
+	/**
+	 * uses a connection of the data source, e.g. a {@link ConnectionPool}, which is returned
+	 * to it on {@link #close()}
+	 */
+	public QueryExecuter(DataSource dataSource) throws SQLException {
+		this(dataSource, null);
+	}
+
+	/**
+	 * @param username recorded as the user applying changes, or null for the user of the connection
+	 */
+	public QueryExecuter(DataSource dataSource, String username) throws SQLException {
+		this(dataSource.getConnection(), username);
+	}
+
+	public QueryExecuter(Connection connection) throws SQLException {
+		this(connection, null);
+	}
+
+	private QueryExecuter(Connection connection, String username) throws SQLException {
+		this.connection = connection;
+		this.username = username != null ? username : connection.getMetaData().getUserName();
+	}
+
+	/**
+	 * the result set has to be closed with {@link #closeQuietly}, which also closes its statement
+	 */
 	public ResultSet executeQuery(String sql) throws SQLException {
-		Statement statement = connection.createStatement();
-		return statement.executeQuery(sql);
+		return executeQuery(connection.createStatement(), sql);
 	}
 
-	public void execute(String sql) throws SQLException {
-		Statement statement = connection.createStatement();
+	/**
+	 * for reading large results in chunks of fetchSize rows instead of all at once
+	 */
+	public ResultSet executeQuery(String sql, int fetchSize) throws SQLException {
+		Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 		try {
-			statement.execute(sql);
-		} finally {
+			statement.setFetchSize(fetchSize);
+		} catch (SQLException e) {
 			statement.close();
+			throw e;
+		}
+		return executeQuery(statement, sql);
+	}
+
+	private static ResultSet executeQuery(Statement statement, String sql) throws SQLException {
+		try {
+			return statement.executeQuery(sql);
+		} catch (SQLException e) {
+			statement.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * closes a result set of {@link #executeQuery} together with its statement
+	 */
+	public static void closeQuietly(ResultSet resultSet) {
+		try {
+			Statement statement = resultSet.getStatement();
+			try {
+				resultSet.close();
+			} finally {
+				if (statement != null) {
+					statement.close();
+				}
+			}
+		} catch (SQLException e) {
+			// nothing more is read from it
+		}
+	}
+
+	/**
+	 * @return the number of rows affected, or -1 if not applicable, e.g. for a query
+	 */
+	public int execute(String sql) throws SQLException {
+		Statement statement = getStatement();
+		startTimeout(statement);
+		try {
+			if (statement.execute(sql)) {
+				return -1;
+			}
+			return statement.getUpdateCount();
+		} catch (SQLException e) {
+			throw failure(e);
+		} finally {
+			stopTimeout();
+		}
+	}
+
+	/**
+	 * executes the statements as one JDBC batch, within one timeout
+	 *
+	 * @throws BatchUpdateException if one of the statements fails
+	 */
+	public int[] executeBatch(List<String> sqls) throws SQLException {
+		Statement statement = getStatement();
+		try {
+			for (String sql : sqls) {
+				statement.addBatch(sql);
+			}
+			startTimeout(statement);
+			return statement.executeBatch();
+		} catch (SQLException e) {
+			throw failure(e);
+		} finally {
+			stopTimeout();
+			statement.clearBatch();
 		}
 	}
 
     public void execute(String sql, Object... params) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(sql);
+        PreparedStatement statement = prepare(sql);
         try {
             for (int i = 0; i < params.length; i++) {
                 Object param = params[i];
                 statement.setObject(i+1, param);
             }
+            startTimeout(statement);
             statement.execute();
+        } catch (SQLException e) {
+            throw failure(e);
         } finally {
-            statement.close();
+            stopTimeout();
+            if (statementCacheSize == 0) {
+                statement.close();
+            } else {
+                statement.clearParameters();
+            }
         }
     }
 
+	/**
+	 * number of prepared statements kept open, default {@value #DEFAULT_STATEMENT_CACHE_SIZE};
+	 * 0 closes every prepared statement after it has been executed
+	 */
+	public void setStatementCacheSize(int statementCacheSize) throws SQLException {
+		if (statementCacheSize < 0) {
+			throw new IllegalArgumentException("statement cache size cannot be negative");
+		}
+		this.statementCacheSize = statementCacheSize;
+		preparedStatements.trim();
+	}
+
+	/**
+	 * time each of the following statements may take, 0 (the default) for no limit
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		if (timeoutMillis < 0) {
+			throw new IllegalArgumentException("timeout cannot be negative");
+		}
+		this.timeoutMillis = timeoutMillis;
+		timeoutsUsed |= timeoutMillis > 0;
+	}
+
 	public void close() throws SQLException {
-		connection.close();
+		if (watchdog != null) {
+			watchdog.close();
+		}
+
+		try {
+			preparedStatements.closeAll();
+			if (statement != null) {
+				statement.close();
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * statements are reused, so once timeouts have been used every statement gets the current one
+	 */
+	private void startTimeout(Statement statement) throws SQLException {
+		if (!timeoutsUsed) {
+			return;
+		}
+
+		statement.setQueryTimeout((int) ((timeoutMillis + 999) / 1000));
+
+		if (timeoutMillis > 0) {
+			if (watchdog == null) {
+				watchdog = new StatementWatchdog();
+			}
+			watchdog.watch(statement, timeoutMillis);
+		}
+	}
+
+	/**
+	 * @return whether the statement has been cancelled by the watchdog
+	 */
+	private boolean stopTimeout() {
+		return watchdog != null && watchdog.stop();
+	}
+
+	private SQLException failure(SQLException e) {
+		if (e instanceof StatementTimeoutException) {
+			return e;
+		}
+
+		boolean cancelled = stopTimeout();
+		if (cancelled || (timeoutMillis > 0 && StatementTimeoutException.SQL_STATE.equals(e.getSQLState()))) {
+			return new StatementTimeoutException(timeoutMillis, e);
+		}
+		return e;
+	}
+
+	private Statement getStatement() throws SQLException {
+		if (statement == null) {
+			statement = connection.createStatement();
+		}
+		return statement;
+	}
+
+	private PreparedStatement prepare(String sql) throws SQLException {
+		if (statementCacheSize == 0) {
+			return connection.prepareStatement(sql);
+		}
+
+		PreparedStatement statement = preparedStatements.get(sql);
+		if (statement == null) {
+			statement = connection.prepareStatement(sql);
+			preparedStatements.put(sql, statement);
+			preparedStatements.trim();
+		}
+		return statement;
 	}
 
 	public void setAutoCommit(boolean autoCommitMode) throws SQLException {
@@ -50,7 +272,82 @@ public class QueryExecuter {
 		connection.commit();
 	}
 
+	public void rollback() throws SQLException {
+		connection.rollback();
+	}
+
+	public Savepoint setSavepoint() throws SQLException {
+		return connection.setSavepoint();
+	}
+
+	/**
+	 * undoes everything since the savepoint, which is kept
+	 */
+	public void rollback(Savepoint savepoint) throws SQLException {
+		connection.rollback(savepoint);
+	}
+
+	/**
+	 * fails on databases that keep savepoints until the end of the transaction, like Oracle
+	 */
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+		connection.releaseSavepoint(savepoint);
+	}
+
+	/**
+	 * looks the table up in the case the database stores unquoted identifiers in, and in the schema
+	 * if the name has one, e.g. deploy.changelog
+	 */
+	public boolean hasColumn(String table, String column) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		if (metaData.storesUpperCaseIdentifiers()) {
+			table = table.toUpperCase();
+			column = column.toUpperCase();
+		} else if (metaData.storesLowerCaseIdentifiers()) {
+			table = table.toLowerCase();
+			column = column.toLowerCase();
+		}
+
+		int dot = table.lastIndexOf('.');
+		String schema = dot < 0 ? null : table.substring(0, dot);
+		ResultSet columns = metaData.getColumns(null, schema, table.substring(dot + 1), column);
+		try {
+			return columns.next();
+		} finally {
+			columns.close();
+		}
+	}
+
     public String getDatabaseUsername() {
         return username;
     }
+
+	/**
+	 * prepared statements by SQL, in the order they have been used
+	 */
+	private class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+		public StatementCache() {
+			super(DEFAULT_STATEMENT_CACHE_SIZE, 0.75f, true);
+		}
+
+		public void trim() throws SQLException {
+			Iterator<PreparedStatement> leastRecentlyUsed = values().iterator();
+			while (size() > statementCacheSize) {
+				PreparedStatement evicted = leastRecentlyUsed.next();
+				leastRecentlyUsed.remove();
+				evicted.close();
+			}
+		}
+
+		public void closeAll() {
+			for (PreparedStatement statement : values()) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					// the connection is closed anyway
+				}
+			}
+			clear();
+		}
+	}
 }
@@ -0,0 +1,26 @@
+package com.dbdeploy.database.changelog;
+
+/**
+ * The statements of a change script committed by a run that failed after them, recorded in the
+ * changelog table so the next run can continue after them.
+ */
+public class ScriptProgress {
+	private final int completedStatements;
+	private final String digest;
+
+	public ScriptProgress(int completedStatements, String digest) {
+		this.completedStatements = completedStatements;
+		this.digest = digest;
+	}
+
+	public int getCompletedStatements() {
+		return completedStatements;
+	}
+
+	/**
+	 * SHA-256 digest of the completed statements, to make sure they have not been changed since
+	 */
+	public String getDigest() {
+		return digest;
+	}
+}
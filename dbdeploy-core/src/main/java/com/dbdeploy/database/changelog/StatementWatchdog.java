@@ -0,0 +1,78 @@
+package com.dbdeploy.database.changelog;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+
+/**
+ * Cancels the statement running on a connection once its deadline has passed, for drivers that
+ * ignore {@link Statement#setQueryTimeout} or only check it between round trips.
+ *
+ * A connection runs one statement at a time, so the watchdog only ever watches one of them.
+ * The statement is cancelled while holding the lock, so it cannot be cancelled after
+ * {@link #stop()} has returned, when it may already run the next SQL.
+ */
+class StatementWatchdog implements Runnable {
+	private final Thread thread;
+	private Statement statement;
+	private long deadline;
+	private boolean cancelled;
+	private boolean closed;
+
+	public StatementWatchdog() {
+		thread = new Thread(this, "dbdeploy-watchdog");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public synchronized void watch(Statement statement, long timeoutMillis) {
+		this.statement = statement;
+		this.deadline = System.currentTimeMillis() + timeoutMillis;
+		this.cancelled = false;
+		notifyAll();
+	}
+
+	/**
+	 * @return whether the statement has been cancelled since it has been watched
+	 */
+	public synchronized boolean stop() {
+		boolean wasCancelled = cancelled;
+		statement = null;
+		cancelled = false;
+		notifyAll();
+		return wasCancelled;
+	}
+
+	public synchronized void close() {
+		closed = true;
+		statement = null;
+		notifyAll();
+	}
+
+	public synchronized void run() {
+		while (!closed) {
+			try {
+				if (statement == null) {
+					wait();
+					continue;
+				}
+
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining > 0) {
+					wait(remaining);
+					continue;
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			cancelled = true;
+			try {
+				statement.cancel();
+			} catch (SQLException e) {
+				// the statement has completed or fails on its own
+			}
+			statement = null;
+		}
+	}
+}
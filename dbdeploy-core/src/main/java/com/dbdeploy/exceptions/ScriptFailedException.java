@@ -29,10 +29,17 @@ public class ScriptFailedException extends DbDeployException {
 		return statement;
 	}
 
+	/**
+	 * whether the statement has been cancelled, or not started, because of a timeout
+	 */
+	public boolean isTimeout() {
+		return getCause() instanceof StatementTimeoutException;
+	}
+
 	@Override
 	public String getMessage() {
 		return "change script " + script +
-			" failed while executing statement " + statement + ":\n" +
+			(isTimeout() ? " timed out" : " failed") + " while executing statement " + statement + ":\n" +
 			executedSql + "\n -> " + getCause().getMessage();
 	}
 }
@@ -0,0 +1,33 @@
+package com.dbdeploy.exceptions;
+
+import java.sql.SQLException;
+
+
+/**
+ * A statement has been cancelled, or has not been started, because it would have exceeded the
+ * statement or script timeout.
+ */
+public class StatementTimeoutException extends SQLException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * SQLState of a timeout, as used by ODBC and many JDBC drivers
+	 */
+	public static final String SQL_STATE = "HYT00";
+
+	private final long timeoutMillis;
+
+	public StatementTimeoutException(String message, long timeoutMillis) {
+		super(message, SQL_STATE);
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public StatementTimeoutException(long timeoutMillis, SQLException cause) {
+		this("timed out after " + timeoutMillis + " ms: " + cause.getMessage(), timeoutMillis);
+		initCause(cause);
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+}
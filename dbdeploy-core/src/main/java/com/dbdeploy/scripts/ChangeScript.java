@@ -4,6 +4,8 @@ import static com.dbdeploy.ConstraintUtils.ensureGreaterThanZero;
 import static com.dbdeploy.ConstraintUtils.ensureNotNull;
 import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 
 
 /*
@@ -12,9 +14,9 @@ import java.io.File;
  * It is a tuple to ensure that the file contents fit to the checksum.
  *
  * Since most of the change scripts have already been executed,
- * a lazy loading mechanism for content and checksum is more economical.
- * But still we would have to ensure, that the checksum has not changed when executing the script
- * (which is after checksum-validation).
+ * a lazy loading mechanism for content is more economical.
+ * LazyChangeScript only keeps the checksum and ensures that it has not changed
+ * when the content is read for executing the script (which is after checksum-validation).
  *
  * @author Graham Tackley
  * @author Michael Gruber
@@ -32,10 +34,22 @@ public class ChangeScript extends Script implements Comparable<ChangeScript> {
 		this.checksum = sha256Hex(doContent + undoContent);
 	}
 
+	/**
+	 * for subclasses that provide content and checksum themselves, see {@link LazyChangeScript}
+	 */
+	protected ChangeScript(final long id, final String description) {
+		super(description);
+		this.id = ensureGreaterThanZero("id", id);
+		this.undoContent = null;
+		this.checksum = null;
+	}
+
 	public ChangeScript(final long id, final File file, final String encoding) {
-		this(id, ensureNotNull("file", file).getName(),
-			getFileContents(file, ensureNotNull("encoding", encoding), false),
-			getFileContents(file, encoding, true));
+		this(id, ensureNotNull("file", file).getName(), new ScriptFileReader(ensureNotNull("encoding", encoding)).read(file));
+	}
+
+	private ChangeScript(final long id, final String description, final ScriptFileReader.Content content) {
+		this(id, description, content.getDoContent(), content.getUndoContent());
 	}
 
 	public long getId() {
@@ -59,4 +73,26 @@ public class ChangeScript extends Script implements Comparable<ChangeScript> {
 		return checksum;
 
 	}
+
+	/**
+	 * reads the optional header that allows the script to be applied concurrently with others
+	 */
+	public ScriptHeader readHeader() {
+		final Reader content = openContent();
+		try {
+			return ScriptHeader.read(content);
+		} finally {
+			try {
+				content.close();
+			} catch (IOException e) {
+				// only the header has been read
+			}
+		}
+	}
+
+	/**
+	 * drops content that can be read again when it is needed, nothing for scripts that have been read eagerly
+	 */
+	public void releaseContent() {
+	}
 }
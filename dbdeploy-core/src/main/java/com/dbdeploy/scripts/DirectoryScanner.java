@@ -1,44 +1,193 @@
 package com.dbdeploy.scripts;
 
+import com.dbdeploy.ConsoleDeploymentListener;
+import com.dbdeploy.DeploymentListener;
+import com.dbdeploy.DeploymentPhase;
+import com.dbdeploy.exceptions.DbDeployException;
 import com.dbdeploy.exceptions.UnrecognisedFilenameException;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DirectoryScanner {
 	
 	private final FilenameParser filenameParser = new FilenameParser();
 	private final String encoding;
-	
+	private boolean lazyLoading;
+	private int parallelism = 1;
+	private boolean useScriptIndex;
+	private DeploymentListener listener = new ConsoleDeploymentListener();
+
+	private final ThreadLocal<ScriptFileReader> readers = new ThreadLocal<ScriptFileReader>() {
+		@Override
+		protected ScriptFileReader initialValue() {
+			return new ScriptFileReader(encoding);
+		}
+	};
+
 	public DirectoryScanner(String encoding) {
         this.encoding = encoding;
     }
+
+	/**
+	 * if set, only the checksums of the change scripts are computed while scanning
+	 * and the content is read when it is needed, see {@link LazyChangeScript}
+	 */
+	public void setLazyLoading(boolean lazyLoading) {
+		this.lazyLoading = lazyLoading;
+	}
+
+	/**
+	 * if set, checksums are cached in a {@link ScriptIndex} in the script directory and only
+	 * new or modified change scripts are read. The index only holds checksums, so the change
+	 * scripts are loaded lazily.
+	 */
+	public void setUseScriptIndex(boolean useScriptIndex) {
+		this.useScriptIndex = useScriptIndex;
+	}
+
+	/**
+	 * receives the progress, by default printed to the console
+	 */
+	public void setListener(DeploymentListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * number of threads used to read and checksum the change scripts, default 1
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism has to be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
 	
 	public List<ChangeScript> getChangeScriptsForDirectory(File directory)  {
+		long start = System.nanoTime();
+
 		try {
-			System.err.println("Reading change scripts from directory " + directory.getCanonicalPath() + "...");
+			listener.info("Reading change scripts from directory " + directory.getCanonicalPath() + "...");
 		} catch (IOException e1) {
 			// ignore
 		}
 
-		List<ChangeScript> scripts = new ArrayList<ChangeScript>();
-		
+		ScriptIndex index = useScriptIndex ? new ScriptIndex(directory, encoding, listener) : null;
+		List<ChangeScriptLoader> loaders = new ArrayList<ChangeScriptLoader>();
+
 		for (File file : directory.listFiles()) {
 			if (file.isFile()) {
 				String filename = file.getName();
 				try {
 					long id = filenameParser.extractIdFromFilename(filename);
-					scripts.add(new ChangeScript(id, file, encoding));
+					loaders.add(new ChangeScriptLoader(id, file, index));
 				} catch (UnrecognisedFilenameException e) {
 					// ignore
 				}
 			}
 		}
-		
+
+		List<ChangeScript> scripts;
+
+		if (parallelism > 1 && loaders.size() > 1) {
+			scripts = loadInParallel(loaders);
+		} else {
+			scripts = new ArrayList<ChangeScript>(loaders.size());
+
+			for (ChangeScriptLoader loader : loaders) {
+				scripts.add(loader.call());
+			}
+		}
+
+		if (index != null) {
+			index.save();
+		}
+
+		listener.info("Read " + scripts.size() + " change scripts");
+		listener.phaseFinished(DeploymentPhase.scan, System.nanoTime() - start);
 		return scripts;
 
 	}
 
+	/**
+	 * loads the change scripts on a bounded thread pool, returning them in the same
+	 * order as they were found in the directory
+	 */
+	private List<ChangeScript> loadInParallel(List<ChangeScriptLoader> loaders) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, loaders.size()));
+
+		try {
+			List<Future<ChangeScript>> futures = new ArrayList<Future<ChangeScript>>(loaders.size());
+
+			for (ChangeScriptLoader loader : loaders) {
+				futures.add(executor.submit(loader));
+			}
+
+			List<ChangeScript> scripts = new ArrayList<ChangeScript>(loaders.size());
+
+			for (Future<ChangeScript> future : futures) {
+				scripts.add(future.get());
+			}
+
+			return scripts;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new DbDeployException("Failed to read change script file", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbDeployException("Interrupted while reading change scripts", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private ChangeScript createChangeScript(long id, File file, ScriptIndex index) {
+		if (index != null) {
+			return createIndexedChangeScript(id, file, index);
+		}
+		if (lazyLoading) {
+			return new LazyChangeScript(id, file, encoding);
+		}
+		ScriptFileReader.Content content = readers.get().read(file);
+		return new ChangeScript(id, file.getName(), content.getDoContent(), content.getUndoContent());
+	}
+
+	private ChangeScript createIndexedChangeScript(long id, File file, ScriptIndex index) {
+		String checksum = index.getChecksum(file, id);
+		if (checksum != null) {
+			return new LazyChangeScript(id, file, encoding, checksum);
+		}
+
+		long size = file.length();
+		long lastModified = file.lastModified();
+		LazyChangeScript script = new LazyChangeScript(id, file, encoding);
+		index.put(file, size, lastModified, id, script.getChecksum());
+		return script;
+	}
+
+	private class ChangeScriptLoader implements Callable<ChangeScript> {
+		private final long id;
+		private final File file;
+		private final ScriptIndex index;
+
+		public ChangeScriptLoader(long id, File file, ScriptIndex index) {
+			this.id = id;
+			this.file = file;
+			this.index = index;
+		}
+
+		public ChangeScript call() {
+			return createChangeScript(id, file, index);
+		}
+	}
+
 }
@@ -0,0 +1,133 @@
+package com.dbdeploy.scripts;
+
+import static com.dbdeploy.ConstraintUtils.ensureNotNull;
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
+
+import com.dbdeploy.ChecksumValidationException;
+import com.dbdeploy.exceptions.DbDeployException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collections;
+
+
+/**
+ * Change script that only keeps id, description and checksum in memory.
+ *
+ * The file is streamed once on construction to compute the checksum. The content
+ * is read when it is requested for the first time, which only happens for scripts
+ * that are going to be applied, and is verified against the checksum computed before.
+ * Applying a script directly streams its content instead of loading it.
+ */
+public class LazyChangeScript extends ChangeScript {
+	private final File file;
+	private final String encoding;
+	private final String checksum;
+	private String loadedDoContent;
+	private String loadedUndoContent;
+
+	public LazyChangeScript(final long id, final File file, final String encoding) {
+		super(id, ensureNotNull("file", file).getName());
+		this.checksum = calculateChecksum(file, ensureNotNull("encoding", encoding));
+		this.file = file;
+		this.encoding = encoding;
+	}
+
+	/**
+	 * for a checksum that is already known, e.g. from the {@link ScriptIndex}, so the file is not read at all
+	 */
+	public LazyChangeScript(final long id, final File file, final String encoding, final String checksum) {
+		super(id, ensureNotNull("file", file).getName());
+		this.checksum = ensureNotNull("checksum", checksum);
+		this.file = file;
+		this.encoding = ensureNotNull("encoding", encoding);
+	}
+
+	@Override
+	public String getChecksum() {
+		return checksum;
+	}
+
+	@Override
+	public String getContent() {
+		load();
+		return loadedDoContent;
+	}
+
+	@Override
+	public String getUndoContent() {
+		load();
+		return loadedUndoContent;
+	}
+
+	@Override
+	public synchronized void releaseContent() {
+		loadedDoContent = null;
+		loadedUndoContent = null;
+	}
+
+	private synchronized void load() {
+		if (loadedDoContent != null) {
+			return;
+		}
+
+		final ScriptFileReader.Content content = new ScriptFileReader(encoding).read(file);
+
+		if (!checksum.equals(sha256Hex(content.getDoContent() + content.getUndoContent()))) {
+			throw new ChecksumValidationException(Collections.<ChangeScript>singletonList(this));
+		}
+
+		loadedDoContent = content.getDoContent();
+		loadedUndoContent = content.getUndoContent();
+	}
+
+	/**
+	 * streams the content from the file, unless it has been loaded already; the checksum is verified
+	 * when the end of the file is reached, so a modified script fails before it is recorded as applied
+	 */
+	@Override
+	public synchronized Reader openContent() {
+		if (loadedDoContent != null) {
+			return new StringReader(loadedDoContent);
+		}
+
+		return new ScriptContentReader(file, encoding) {
+			@Override
+			protected void endOfFile(final String actualChecksum) {
+				if (!checksum.equals(actualChecksum)) {
+					throw new ChecksumValidationException(Collections.<ChangeScript>singletonList(LazyChangeScript.this));
+				}
+			}
+		};
+	}
+
+	/**
+	 * computes the same checksum as {@link ChangeScript} does for do and undo content,
+	 * i.e. over all lines except the undo marker, without keeping the content
+	 */
+	private static String calculateChecksum(final File file, final String encoding) {
+		final String[] checksum = new String[1];
+		final ScriptContentReader reader = new ScriptContentReader(file, encoding) {
+			@Override
+			protected void endOfFile(final String actualChecksum) {
+				checksum[0] = actualChecksum;
+			}
+		};
+
+		try {
+			try {
+				final char[] buffer = new char[8192];
+				while (reader.read(buffer) != -1) {
+					// only the checksum is needed
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		}
+
+		return checksum[0];
+	}
+}
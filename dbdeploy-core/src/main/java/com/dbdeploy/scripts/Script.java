@@ -1,11 +1,8 @@
 package com.dbdeploy.scripts;
 
-import com.dbdeploy.exceptions.DbDeployException;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import static com.dbdeploy.ConstraintUtils.ensureNotNull;
 
 
@@ -13,7 +10,7 @@ import static com.dbdeploy.ConstraintUtils.ensureNotNull;
  * extracted superclass from ChangeScript
  */
 public class Script {
-	private static final String UNDO_MARKER = "--//@UNDO";
+	protected static final String UNDO_MARKER = "--//@UNDO";
 
 	protected final String doContent;
 	protected final String description;
@@ -24,8 +21,16 @@ public class Script {
 		this.doContent = ensureNotNull("doContent", doContent);
 	}
 
+	/**
+	 * for subclasses that read their content on demand
+	 */
+	protected Script(final String description) {
+		this.description = ensureNotNull("description", description);
+		this.doContent = null;
+	}
+
 	public Script(final File file, final String encoding) {
-		this(ensureNotNull("file", file).getName(), getFileContents(file, ensureNotNull("encoding", encoding), false));
+		this(ensureNotNull("file", file).getName(), new ScriptFileReader(ensureNotNull("encoding", encoding)).read(file).getDoContent());
 	}
 
 	@Override
@@ -42,38 +47,11 @@ public class Script {
 		return doContent;
 	}
 
-	protected static String getFileContents(final File file, final String encoding, final boolean onlyAfterUndoMarker) {
-		try {
-			final StringBuilder content = new StringBuilder();
-			boolean foundUndoMarker = false;
-			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding));
-
-			try {
-				for (;;) {
-					String str = reader.readLine();
-
-					if (str == null) {
-						break;
-					}
-
-					if (str.trim().equals(UNDO_MARKER)) {
-						foundUndoMarker = true;
-						continue;
-					}
-
-					if (foundUndoMarker == onlyAfterUndoMarker) {
-						content.append(str);
-						content.append('\n');
-					}
-				}
-			} finally {
-				reader.close();
-			}
-
-			return content.toString();
-		} catch (IOException e) {
-			throw new DbDeployException("Failed to read change script file", e);
-		}
+	/**
+	 * @return a reader over the content, to be closed by the caller
+	 */
+	public Reader openContent() {
+		return new StringReader(getContent());
 	}
 
 }
@@ -0,0 +1,99 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import org.apache.commons.codec.binary.Hex;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Streams the do content of a change script file, i.e. its lines up to the undo marker each
+ * terminated by '\n', and computes the checksum {@link ChangeScript} computes for do and undo
+ * content on the way. When the end of the do content is reached, the undo content is only
+ * read for the checksum and {@link #endOfFile(String)} is called.
+ */
+class ScriptContentReader extends Reader {
+	private static final String CHECKSUM_ENCODING = "UTF-8";
+
+	private final BufferedReader reader;
+	private final MessageDigest digest;
+	private String line = "";
+	private int position;
+	private boolean endOfContent;
+
+	public ScriptContentReader(final File file, final String encoding) {
+		try {
+			this.digest = MessageDigest.getInstance("SHA-256");
+			this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding));
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new DbDeployException("SHA-256 is not supported by this JVM", e);
+		}
+	}
+
+	@Override
+	public int read(final char[] buffer, final int offset, final int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+
+		while (position == line.length()) {
+			if (endOfContent) {
+				return -1;
+			}
+			nextLine();
+		}
+
+		final int count = Math.min(length, line.length() - position);
+		line.getChars(position, position + count, buffer, offset);
+		position += count;
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * called once the whole file has been read, with its checksum
+	 */
+	protected void endOfFile(final String checksum) {
+	}
+
+	private void nextLine() throws IOException {
+		String str = reader.readLine();
+
+		if (str != null && str.trim().equals(Script.UNDO_MARKER)) {
+			while ((str = reader.readLine()) != null) {
+				if (!str.trim().equals(Script.UNDO_MARKER)) {
+					update(str);
+				}
+			}
+		}
+
+		if (str == null) {
+			endOfContent = true;
+			line = "";
+			position = 0;
+			endOfFile(new String(Hex.encodeHex(digest.digest())));
+			return;
+		}
+
+		update(str);
+		line = str + "\n";
+		position = 0;
+	}
+
+	private void update(final String str) throws IOException {
+		digest.update(str.getBytes(CHECKSUM_ENCODING));
+		digest.update((byte) '\n');
+	}
+}
@@ -0,0 +1,205 @@
+package com.dbdeploy.scripts;
+
+import static com.dbdeploy.ConstraintUtils.ensureNotNull;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+
+/**
+ * Reads a script file in a single pass and splits it at the undo marker
+ * into do and undo content.
+ *
+ * Lines are treated the same way as {@link java.io.BufferedReader#readLine()} does and
+ * are terminated by a single '\n' in the result. The byte and char buffers are
+ * reused for every file read, so an instance must not be shared between threads.
+ */
+public class ScriptFileReader {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final CharsetDecoder decoder;
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+	private final StringBuilder line = new StringBuilder();
+
+	private StringBuilder doContent;
+	private StringBuilder undoContent;
+	private boolean foundUndoMarker;
+	private boolean lastCharWasCarriageReturn;
+
+	public ScriptFileReader(final String encoding) {
+		this.decoder = createDecoder(ensureNotNull("encoding", encoding));
+	}
+
+	public Content read(final File file) {
+		doContent = new StringBuilder();
+		undoContent = new StringBuilder();
+		foundUndoMarker = false;
+		lastCharWasCarriageReturn = false;
+		line.setLength(0);
+
+		try {
+			final FileInputStream in = new FileInputStream(file);
+
+			try {
+				decode(in.getChannel());
+			} finally {
+				in.close();
+			}
+
+			if (line.length() > 0) {
+				endOfLine();
+			}
+
+			return new Content(doContent.toString(), undoContent.toString());
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		} finally {
+			doContent = null;
+			undoContent = null;
+		}
+	}
+
+	private void decode(final FileChannel channel) throws IOException {
+		decoder.reset();
+		bytes.clear();
+
+		for (;;) {
+			final boolean endOfInput = channel.read(bytes) == -1;
+			bytes.flip();
+
+			CoderResult result;
+			do {
+				result = decoder.decode(bytes, chars, endOfInput);
+				scan();
+			} while (result.isOverflow());
+			throwIfError(result);
+
+			bytes.compact();
+
+			if (endOfInput) {
+				break;
+			}
+		}
+
+		CoderResult result;
+		do {
+			result = decoder.flush(chars);
+			scan();
+		} while (result.isOverflow());
+		throwIfError(result);
+	}
+
+	private void throwIfError(final CoderResult result) throws CharacterCodingException {
+		if (result.isError()) {
+			result.throwException();
+		}
+	}
+
+	private void scan() {
+		chars.flip();
+
+		while (chars.hasRemaining()) {
+			final char c = chars.get();
+
+			if (c == '\n' && lastCharWasCarriageReturn) {
+				lastCharWasCarriageReturn = false;
+				continue;
+			}
+
+			lastCharWasCarriageReturn = c == '\r';
+
+			if (c == '\r' || c == '\n') {
+				endOfLine();
+			} else {
+				line.append(c);
+			}
+		}
+
+		chars.clear();
+	}
+
+	private void endOfLine() {
+		if (isUndoMarker(line)) {
+			foundUndoMarker = true;
+		} else {
+			final StringBuilder content = foundUndoMarker ? undoContent : doContent;
+			content.append(line);
+			content.append('\n');
+		}
+
+		line.setLength(0);
+	}
+
+	/**
+	 * same as line.toString().trim().equals(UNDO_MARKER) without creating the string
+	 */
+	private static boolean isUndoMarker(final CharSequence line) {
+		int start = 0;
+		int end = line.length();
+
+		while (start < end && line.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		if (end - start != Script.UNDO_MARKER.length()) {
+			return false;
+		}
+
+		for (int i = start; i < end; i++) {
+			if (line.charAt(i) != Script.UNDO_MARKER.charAt(i - start)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static CharsetDecoder createDecoder(final String encoding) {
+		try {
+			return Charset.forName(encoding).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		} catch (IllegalCharsetNameException e) {
+			throw new DbDeployException("Unsupported encoding " + encoding, e);
+		} catch (UnsupportedCharsetException e) {
+			throw new DbDeployException("Unsupported encoding " + encoding, e);
+		}
+	}
+
+	/**
+	 * do and undo content of a script file
+	 */
+	public static class Content {
+		private final String doContent;
+		private final String undoContent;
+
+		public Content(final String doContent, final String undoContent) {
+			this.doContent = doContent;
+			this.undoContent = undoContent;
+		}
+
+		public String getDoContent() {
+			return doContent;
+		}
+
+		public String getUndoContent() {
+			return undoContent;
+		}
+	}
+}
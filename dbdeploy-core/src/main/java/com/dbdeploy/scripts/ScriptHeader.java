@@ -0,0 +1,116 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Optional header of a change script that allows it to be applied concurrently with other scripts.
+ *
+ * The header consists of comment lines at the start of the script, before the first statement:
+ * <pre>
+ * --//@GROUP orders
+ * --//@DEPENDS 12, 15
+ * </pre>
+ * Scripts of the same group are applied one after the other, in the order of their ids; a script
+ * is only applied once the scripts it depends on have been applied. Scripts without a header are
+ * applied on their own, after all scripts before them and before all scripts after them.
+ */
+public class ScriptHeader {
+	public static final ScriptHeader NONE = new ScriptHeader(null, Collections.<Long>emptyList());
+
+	static final String GROUP_MARKER = "--//@GROUP";
+	static final String DEPENDS_MARKER = "--//@DEPENDS";
+
+	private final String group;
+	private final List<Long> dependencies;
+
+	public ScriptHeader(final String group, final List<Long> dependencies) {
+		this.group = group;
+		this.dependencies = Collections.unmodifiableList(dependencies);
+	}
+
+	/**
+	 * @return the group, or null if the script does not belong to one
+	 */
+	public String getGroup() {
+		return group;
+	}
+
+	/**
+	 * @return the ids of the scripts this one depends on
+	 */
+	public List<Long> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * @return false for scripts that have to be applied on their own
+	 */
+	public boolean isDeclared() {
+		return this != NONE;
+	}
+
+	/**
+	 * reads the leading comment lines of the content, the reader is not closed
+	 */
+	public static ScriptHeader read(final Reader content) {
+		String group = null;
+		List<Long> dependencies = new ArrayList<Long>();
+		boolean declared = false;
+
+		try {
+			final BufferedReader reader = new BufferedReader(content);
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+
+				if (line.length() == 0) {
+					continue;
+				}
+				if (!line.startsWith("--")) {
+					break;
+				}
+
+				if (line.startsWith(GROUP_MARKER)) {
+					group = line.substring(GROUP_MARKER.length()).trim();
+					declared = true;
+				} else if (line.startsWith(DEPENDS_MARKER)) {
+					dependencies.addAll(parseIds(line.substring(DEPENDS_MARKER.length())));
+					declared = true;
+				}
+			}
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read script header", e);
+		}
+
+		if (!declared) {
+			return NONE;
+		}
+
+		return new ScriptHeader(group == null || group.length() == 0 ? null : group, dependencies);
+	}
+
+	private static List<Long> parseIds(final String ids) {
+		final List<Long> result = new ArrayList<Long>();
+
+		for (String id : ids.split("[,\\s]+")) {
+			if (id.length() == 0) {
+				continue;
+			}
+			try {
+				result.add(Long.valueOf(id));
+			} catch (NumberFormatException e) {
+				throw new DbDeployException("Invalid change script id " + id + " in " + DEPENDS_MARKER + " header");
+			}
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,227 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.ConsoleDeploymentListener;
+import com.dbdeploy.DeploymentListener;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+
+/**
+ * Cache of change script checksums, stored in the file {@value #FILENAME} in the script directory.
+ *
+ * An entry maps the file name, size and modification time of a change script to its id and
+ * checksum, so unchanged scripts don't have to be read again. The file is a compact binary format
+ * with a trailing CRC32; an index that is unreadable, corrupt, of another version or written
+ * for another encoding is ignored and rebuilt.
+ *
+ * Like git's index, entries for files modified shortly before the index was written are not trusted,
+ * since a later change within the file system's timestamp granularity would go unnoticed.
+ */
+public class ScriptIndex {
+	public static final String FILENAME = ".dbdeploy-index";
+
+	private static final int MAGIC = 0xDBDE9101;
+	private static final int VERSION = 1;
+	private static final long TIMESTAMP_GRANULARITY = 2000;
+
+	private final File indexFile;
+	private final String encoding;
+	private final DeploymentListener listener;
+	private final Map<String, Entry> loadedEntries = new HashMap<String, Entry>();
+	private final Map<String, Entry> currentEntries = new HashMap<String, Entry>();
+	private long writtenAt;
+	private boolean modified;
+
+	public ScriptIndex(final File directory, final String encoding) {
+		this(directory, encoding, new ConsoleDeploymentListener());
+	}
+
+	/**
+	 * @param listener receives the warnings about index files that cannot be read or written
+	 */
+	public ScriptIndex(final File directory, final String encoding, final DeploymentListener listener) {
+		this.indexFile = new File(directory, FILENAME);
+		this.encoding = encoding;
+		this.listener = listener;
+		load();
+	}
+
+	/**
+	 * @return the cached checksum, or null if the file is not in the index or has been modified since
+	 */
+	public String getChecksum(final File file, final long id) {
+		// the file system is asked outside the lock, so parallel scans don't wait for each other
+		final long size = file.length();
+		final long lastModified = file.lastModified();
+
+		synchronized (this) {
+			final Entry entry = loadedEntries.get(file.getName());
+
+			if (entry == null
+				|| entry.id != id
+				|| entry.size != size
+				|| entry.lastModified != lastModified
+				|| entry.lastModified >= writtenAt - TIMESTAMP_GRANULARITY) {
+				return null;
+			}
+
+			currentEntries.put(file.getName(), entry);
+			return entry.checksum;
+		}
+	}
+
+	/**
+	 * size and lastModified have to be determined before the checksum is computed
+	 */
+	public synchronized void put(final File file, final long size, final long lastModified, final long id, final String checksum) {
+		currentEntries.put(file.getName(), new Entry(id, size, lastModified, checksum));
+		modified = true;
+	}
+
+	/**
+	 * writes the entries of all files looked up or put since the index was loaded,
+	 * if anything has changed
+	 */
+	public synchronized void save() {
+		if (!modified && currentEntries.size() == loadedEntries.size()) {
+			return;
+		}
+
+		try {
+			final long now = System.currentTimeMillis();
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bytes);
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(encoding);
+			out.writeLong(now);
+			out.writeInt(currentEntries.size());
+
+			for (Map.Entry<String, Entry> entry : currentEntries.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue().id);
+				out.writeLong(entry.getValue().size);
+				out.writeLong(entry.getValue().lastModified);
+				out.writeUTF(entry.getValue().checksum);
+			}
+
+			out.writeLong(crc(bytes.toByteArray(), bytes.size()));
+			out.close();
+
+			writeAtomically(bytes.toByteArray());
+
+			writtenAt = now;
+			modified = false;
+			loadedEntries.clear();
+			loadedEntries.putAll(currentEntries);
+		} catch (IOException e) {
+			listener.info("Could not write script index " + indexFile + ": " + e.getMessage());
+		}
+	}
+
+	private void writeAtomically(final byte[] content) throws IOException {
+		final File tempFile = new File(indexFile.getParentFile(), FILENAME + ".tmp");
+		final OutputStream out = new FileOutputStream(tempFile);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+
+		if (!tempFile.renameTo(indexFile)) {
+			// File.renameTo does not replace existing files on all platforms
+			indexFile.delete();
+			if (!tempFile.renameTo(indexFile)) {
+				tempFile.delete();
+				throw new IOException("could not rename " + tempFile + " to " + indexFile);
+			}
+		}
+	}
+
+	private void load() {
+		if (!indexFile.isFile()) {
+			return;
+		}
+
+		try {
+			final byte[] content = readFully(indexFile);
+
+			if (content.length < 8) {
+				throw new IOException("truncated");
+			}
+
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+			in.skipBytes(content.length - 8);
+			if (in.readLong() != crc(content, content.length - 8)) {
+				throw new IOException("checksum mismatch");
+			}
+
+			final DataInputStream payload = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - 8));
+
+			if (payload.readInt() != MAGIC || payload.readInt() != VERSION || !encoding.equals(payload.readUTF())) {
+				return;
+			}
+
+			final long timestamp = payload.readLong();
+			final int count = payload.readInt();
+
+			for (int i = 0; i < count; i++) {
+				final String filename = payload.readUTF();
+				final long id = payload.readLong();
+				final long size = payload.readLong();
+				final long lastModified = payload.readLong();
+				final String checksum = payload.readUTF();
+				loadedEntries.put(filename, new Entry(id, size, lastModified, checksum));
+			}
+
+			writtenAt = timestamp;
+		} catch (IOException e) {
+			loadedEntries.clear();
+			listener.info("Ignoring unreadable script index " + indexFile + ": " + e.getMessage());
+		}
+	}
+
+	private static byte[] readFully(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] content = new byte[(int) file.length()];
+			final DataInputStream dataIn = new DataInputStream(in);
+			dataIn.readFully(content);
+			return content;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static long crc(final byte[] content, final int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(content, 0, length);
+		return crc.getValue();
+	}
+
+	private static class Entry {
+		private final long id;
+		private final long size;
+		private final long lastModified;
+		private final String checksum;
+
+		public Entry(final long id, final long size, final long lastModified, final String checksum) {
+			this.id = id;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.checksum = checksum;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.dbdeploy;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.Script;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AsyncDeploymentListenerTest {
+	private final ChangeScript script = new ChangeScript(1, "001_script.sql", "content", "");
+
+	@Test
+	public void shouldDeliverAllEventsInOrderBeforeRunFinishedReturns() {
+		RecordingListener recording = new RecordingListener();
+		AsyncDeploymentListener listener = new AsyncDeploymentListener(recording, 2);
+
+		listener.info("hello");
+		listener.scriptStarted(script);
+		for (int i = 1; i <= 100; i++) {
+			listener.statementExecuted(script, i, "SELECT " + i, 0, new int[] { -1 });
+		}
+		listener.scriptCommitted(script);
+		listener.phaseFinished(DeploymentPhase.apply, 0);
+		listener.runFinished(1, null);
+
+		assertThat(recording.events.size(), is(105));
+		assertThat(recording.events.get(0), is("info hello"));
+		assertThat(recording.events.get(1), is("started #1: 001_script.sql"));
+		assertThat(recording.events.get(2), is("executed 1"));
+		assertThat(recording.events.get(101), is("executed 100"));
+		assertThat(recording.events.get(102), is("committed #1: 001_script.sql"));
+		assertThat(recording.events.get(103), is("phase apply"));
+		assertThat(recording.events.get(104), is("finished 1"));
+	}
+
+	@Test
+	public void shouldDeliverEventsAfterTheRunFinishedDirectly() {
+		RecordingListener recording = new RecordingListener();
+		AsyncDeploymentListener listener = new AsyncDeploymentListener(recording);
+
+		listener.runFinished(0, null);
+		listener.info("late");
+
+		assertThat(recording.events, is(Arrays.asList("finished 0", "info late")));
+	}
+
+	@Test
+	public void shouldPassEveryEventToAllListeners() {
+		RecordingListener first = new RecordingListener();
+		RecordingListener second = new RecordingListener();
+		DeploymentListeners listeners = new DeploymentListeners(Arrays.asList(first, second));
+
+		listeners.scriptStarted(script);
+		listeners.runFinished(1, null);
+
+		assertThat(first.events, is(Arrays.asList("started #1: 001_script.sql", "finished 1")));
+		assertThat(second.events, is(first.events));
+	}
+
+	private static class RecordingListener implements DeploymentListener {
+		private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+		public void info(String message) {
+			events.add("info " + message);
+		}
+
+		public void scriptStarted(Script script) {
+			events.add("started " + script);
+		}
+
+		public void statementExecuted(Script script, int statement, String sql, long nanos, int[] updateCounts) {
+			events.add("executed " + statement);
+		}
+
+		public void scriptCommitted(ChangeScript script) {
+			events.add("committed " + script);
+		}
+
+		public void phaseFinished(DeploymentPhase phase, long nanos) {
+			events.add("phase " + phase);
+		}
+
+		public void runFinished(int appliedScripts, Throwable failure) {
+			events.add("finished " + appliedScripts);
+		}
+	}
+}
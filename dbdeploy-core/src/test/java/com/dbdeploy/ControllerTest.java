@@ -1,5 +1,6 @@
 package com.dbdeploy;
 
+import com.dbdeploy.database.changelog.AppliedChanges;
 import com.dbdeploy.scripts.ChangeScript;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
@@ -12,7 +13,6 @@ import org.mockito.runners.MockitoJUnit44Runner;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 @RunWith(MockitoJUnit44Runner.class)
@@ -42,7 +42,7 @@ public class ControllerTest {
 
 	@Test
 	public void shouldApplyChangeScriptsInOrder() throws Exception {
-		when(appliedChangesProvider.findChangeLogEntryIds()).thenReturn(Collections.<Long>emptyList());
+		when(appliedChangesProvider.findAppliedChanges()).thenReturn(new AppliedChanges());
 
 		controller.processChangeScripts(Long.MAX_VALUE);
 
@@ -56,14 +56,14 @@ public class ControllerTest {
 	public void shouldNotCrashWhenPassedANullUndoApplier() throws Exception {
 		controller = new Controller(availableChangeScriptsProvider, appliedChangesProvider, applier, null);
 
-		when(appliedChangesProvider.findChangeLogEntryIds()).thenReturn(Collections.<Long>emptyList());
+		when(appliedChangesProvider.findAppliedChanges()).thenReturn(new AppliedChanges());
 
 		controller.processChangeScripts(Long.MAX_VALUE);
 	}
 
 	@Test
 	public void shouldApplyUndoScriptsInReverseOrder() throws Exception {
-		when(appliedChangesProvider.findChangeLogEntryIds()).thenReturn(Collections.<Long>emptyList());
+		when(appliedChangesProvider.findAppliedChanges()).thenReturn(new AppliedChanges());
 
 		controller.processChangeScripts(Long.MAX_VALUE);
 
@@ -76,7 +76,7 @@ public class ControllerTest {
 
 	@Test
 	public void shouldIgnoreChangesAlreadyAppliedToTheDatabase() throws Exception {
-		when(appliedChangesProvider.findChangeLogEntryIds()).thenReturn(Arrays.asList(1L));
+		when(appliedChangesProvider.findAppliedChanges()).thenReturn(appliedChanges(change1));
 
 		controller.processChangeScripts(Long.MAX_VALUE);
 
@@ -87,7 +87,7 @@ public class ControllerTest {
 
 	@Test
 	public void shouldNotApplyChangesGreaterThanTheMaxChangeToApply() throws Exception {
-		when(appliedChangesProvider.findChangeLogEntryIds()).thenReturn(Collections.<Long>emptyList());
+		when(appliedChangesProvider.findAppliedChanges()).thenReturn(new AppliedChanges());
 
 		controller.processChangeScripts(2L);
 
@@ -96,6 +96,49 @@ public class ControllerTest {
 		assertThat(applier.changeScripts.get(1), is(change2));
 	}
 
+	@Test(expected = ChecksumValidationException.class)
+	public void shouldThrowExceptionWhenTheChecksumOfAnAppliedScriptHasChanged() throws Exception {
+		final AppliedChanges applied = appliedChanges(change1);
+		applied.add(change2.getId(), "modified checksum");
+		when(appliedChangesProvider.findAppliedChanges()).thenReturn(applied);
+
+		controller.processChangeScripts(Long.MAX_VALUE);
+	}
+
+	@Test
+	public void shouldPlanWithoutComparingEveryScriptToEveryChangeLogEntry() throws Exception {
+		final int numberOfScripts = 10000;
+		final List<ChangeScript> scripts = new ArrayList<ChangeScript>(numberOfScripts);
+		final CountingAppliedChanges applied = new CountingAppliedChanges();
+
+		for (int id = 1; id <= numberOfScripts; id++) {
+			final ChangeScript script = new ChangeScript(id, "description" + id, "doContent" + id, "undoContent" + id);
+			scripts.add(script);
+
+			if (id <= numberOfScripts - 10) {
+				applied.add(id, script.getChecksum());
+			}
+		}
+
+		when(availableChangeScriptsProvider.getAvailableChangeScripts()).thenReturn(scripts);
+		when(appliedChangesProvider.findAppliedChanges()).thenReturn(applied);
+
+		controller.processChangeScripts(Long.MAX_VALUE);
+
+		assertThat(applier.changeScripts.size(), is(10));
+		assertThat(applier.changeScripts.get(0).getId(), is((long) numberOfScripts - 9));
+		// a merge looks at each applied change a few times, nested loops would look at it once per script
+		assertThat(applied.lookups < 10 * (scripts.size() + applied.size()), is(true));
+	}
+
+	private AppliedChanges appliedChanges(ChangeScript... scripts) {
+		final AppliedChanges applied = new AppliedChanges();
+		for (ChangeScript script : scripts) {
+			applied.add(script.getId(), script.getChecksum());
+		}
+		return applied;
+	}
+
     private class StubChangeScriptApplier implements ChangeScriptApplier {
         private List<ChangeScript> changeScripts;
 
@@ -103,4 +146,23 @@ public class ControllerTest {
             this.changeScripts = new ArrayList<ChangeScript>(changeScripts);
         }
     }
+
+	/**
+	 * counts how often the ids and checksums of the applied changes are looked at
+	 */
+	private static class CountingAppliedChanges extends AppliedChanges {
+		private int lookups;
+
+		@Override
+		public long getId(int index) {
+			lookups++;
+			return super.getId(index);
+		}
+
+		@Override
+		public String getChecksum(int index) {
+			lookups++;
+			return super.getChecksum(index);
+		}
+	}
 }
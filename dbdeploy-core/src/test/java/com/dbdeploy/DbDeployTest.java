@@ -59,6 +59,46 @@ public class DbDeployTest {
 		}
 	}
 
+	@Test
+	public void shouldThrowIfTargetsFileIsCombinedWithOutputFile() throws Exception {
+		File targetsfile = File.createTempFile("targets", ".txt");
+		targetsfile.deleteOnExit();
+		dbDeploy.setTargetsfile(targetsfile);
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertEquals("A targets file can only be used when applying directly to the databases", e.getMessage());
+		}
+	}
+
+	@Test
+	public void shouldThrowIfScriptsAreResumedWithoutSavepoints() throws Exception {
+		dbDeploy.setOutputfile(null);
+		dbDeploy.setResumable(true);
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertEquals("Change scripts can only be resumed together with a savepoint interval", e.getMessage());
+		}
+	}
+
+	@Test
+	public void shouldThrowIfScriptsAreResumedWithSeveralScriptsPerTransaction() throws Exception {
+		dbDeploy.setOutputfile(null);
+		dbDeploy.setResumable(true);
+		dbDeploy.setSavepointInterval(100);
+		dbDeploy.setScriptsPerTransaction(10);
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertEquals("Change scripts can only be resumed in transaction mode script with one change script "
+				+ "per transaction, since only the failed one is recorded as partially applied", e.getMessage());
+		}
+	}
+
 	@Test
 	public void shouldReportVersionNumberWithoutCrashing() {
 		assertThat(dbDeploy.getWelcomeString(), startsWith("dbdeploy"));
@@ -0,0 +1,70 @@
+package com.dbdeploy;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.dbdeploy.exceptions.UsageException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DeploymentTargetTest {
+
+	@Test
+	public void shouldReadOneTargetPerLine() throws Exception {
+		File file = writeTargets("# staging databases\n"
+			+ "jdbc:hsqldb:mem:one\n"
+			+ "\n"
+			+ "  jdbc:hsqldb:mem:two   other  secret \n"
+			+ "jdbc:hsqldb:mem:three other\n");
+
+		List<DeploymentTarget> targets = DeploymentTarget.read(file, "UTF-8", "sa", "default");
+
+		assertThat(targets.size(), is(3));
+		assertThat(targets.get(0).getUrl(), is("jdbc:hsqldb:mem:one"));
+		assertThat(targets.get(0).getUserid(), is("sa"));
+		assertThat(targets.get(0).getPassword(), is("default"));
+		assertThat(targets.get(1).getUrl(), is("jdbc:hsqldb:mem:two"));
+		assertThat(targets.get(1).getUserid(), is("other"));
+		assertThat(targets.get(1).getPassword(), is("secret"));
+		assertThat(targets.get(2).getUserid(), is("other"));
+		assertThat(targets.get(2).getPassword(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReadTheFileInTheGivenEncoding() throws Exception {
+		File file = File.createTempFile("targets", ".txt");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("jdbc:hsqldb:mem:one sa s\u00e9cret\n".getBytes("ISO-8859-1"));
+		out.close();
+
+		List<DeploymentTarget> targets = DeploymentTarget.read(file, "ISO-8859-1", null, null);
+
+		assertThat(targets.get(0).getPassword(), is("s\u00e9cret"));
+	}
+
+	@Test(expected = UsageException.class)
+	public void shouldRequireUseridIfThereIsNoDefault() throws Exception {
+		DeploymentTarget.read(writeTargets("jdbc:hsqldb:mem:one\n"), "UTF-8", null, null);
+	}
+
+	@Test(expected = UsageException.class)
+	public void shouldRejectLinesWithTooManyFields() throws Exception {
+		DeploymentTarget.read(writeTargets("jdbc:hsqldb:mem:one sa secret more\n"), "UTF-8", "sa", null);
+	}
+
+	private File writeTargets(String content) throws IOException {
+		File file = File.createTempFile("targets", ".txt");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write(content);
+		writer.close();
+		return file;
+	}
+}
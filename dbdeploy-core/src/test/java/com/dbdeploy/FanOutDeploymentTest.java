@@ -0,0 +1,85 @@
+package com.dbdeploy;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class FanOutDeploymentTest {
+	private final List<DeploymentTarget> targets = Arrays.asList(
+		new DeploymentTarget("jdbc:one", "user", null),
+		new DeploymentTarget("jdbc:two", "user", null),
+		new DeploymentTarget("jdbc:three", "user", null));
+
+	@Test
+	public void shouldReportResultsInTheOrderOfTheTargets() throws Exception {
+		List<DeploymentResult> results = new FanOutDeployment(new FanOutDeployment.TargetDeployer() {
+			public int deploy(DeploymentTarget target) throws Exception {
+				return target.getUrl().length();
+			}
+		}, 2).deploy(targets);
+
+		assertThat(results.size(), is(3));
+		for (int i = 0; i < 3; i++) {
+			assertThat(results.get(i).getTarget(), is(targets.get(i)));
+			assertThat(results.get(i).getAppliedChangeScripts(), is(targets.get(i).getUrl().length()));
+			assertThat(results.get(i).isSuccessful(), is(true));
+			assertThat(results.get(i).getFailure(), is(nullValue()));
+		}
+	}
+
+	@Test
+	public void shouldContinueWithOtherTargetsWhenOneFails() throws Exception {
+		final SQLException failure = new SQLException("connection refused");
+
+		List<DeploymentResult> results = new FanOutDeployment(new FanOutDeployment.TargetDeployer() {
+			public int deploy(DeploymentTarget target) throws Exception {
+				if (target.getUrl().equals("jdbc:two")) {
+					throw failure;
+				}
+				return 1;
+			}
+		}, 1).deploy(targets);
+
+		assertThat(results.get(0).isSuccessful(), is(true));
+		assertThat(results.get(1).isSuccessful(), is(false));
+		assertThat(results.get(1).getFailure(), is((Throwable) failure));
+		assertThat(results.get(2).isSuccessful(), is(true));
+	}
+
+	@Test
+	public void shouldNotDeployToMoreTargetsConcurrentlyThanAllowed() throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maximum = new AtomicInteger();
+		final List<DeploymentTarget> manyTargets = new ArrayList<DeploymentTarget>();
+		for (int i = 0; i < 20; i++) {
+			manyTargets.add(new DeploymentTarget("jdbc:" + i, "user", null));
+		}
+
+		new FanOutDeployment(new FanOutDeployment.TargetDeployer() {
+			public int deploy(DeploymentTarget target) throws Exception {
+				int now = running.incrementAndGet();
+				synchronized (maximum) {
+					maximum.set(Math.max(maximum.get(), now));
+				}
+				Thread.sleep(5);
+				running.decrementAndGet();
+				return 0;
+			}
+		}, 3).deploy(manyTargets);
+
+		assertThat(maximum.get() <= 3, is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectParallelismBelowOne() {
+		new FanOutDeployment(null, 0);
+	}
+}
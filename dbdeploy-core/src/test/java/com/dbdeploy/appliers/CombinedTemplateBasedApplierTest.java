@@ -0,0 +1,39 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.DelimiterType;
+import com.dbdeploy.scripts.ChangeScript;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CombinedTemplateBasedApplierTest {
+
+	@Test
+	public void shouldWriteTheSameOutputAsSeparateAppliers() throws Exception {
+		List<ChangeScript> scripts = new ArrayList<ChangeScript>();
+		for (int i = 1; i <= 3; i++) {
+			scripts.add(new ChangeScript(i, i + "_script.sql", "CREATE TABLE t" + i + " (id INT);\n", "DROP TABLE t" + i + ";\n"));
+		}
+
+		StringWriter expectedApply = new StringWriter();
+		new TemplateBasedApplier(expectedApply, "hsql", "changelog", ";", DelimiterType.normal, null).apply(scripts);
+
+		List<ChangeScript> reversed = new ArrayList<ChangeScript>(scripts);
+		Collections.reverse(reversed);
+		StringWriter expectedUndo = new StringWriter();
+		new UndoTemplateBasedApplier(expectedUndo, "hsql", "changelog", ";", DelimiterType.normal, null).apply(reversed);
+
+		StringWriter apply = new StringWriter();
+		StringWriter undo = new StringWriter();
+		new CombinedTemplateBasedApplier(apply, undo, "hsql", "changelog", ";", DelimiterType.normal, null).apply(scripts);
+
+		assertThat(apply.toString(), is(expectedApply.toString()));
+		assertThat(undo.toString(), is(expectedUndo.toString()));
+	}
+}
@@ -0,0 +1,171 @@
+package com.dbdeploy.appliers;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import com.dbdeploy.DeploymentListener;
+import com.dbdeploy.DeploymentListenerAdapter;
+import com.dbdeploy.scripts.ChangeScript;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DeploymentStatisticsTest {
+	private final ChangeScript script = new ChangeScript(1, "001_script.sql", "content", "");
+
+	@Test
+	public void shouldReportTheSlowestStatementsSlowestFirst() {
+		DeploymentStatistics statistics = new DeploymentStatistics(2);
+		statistics.statementExecuted(script, 1, "CREATE TABLE t (id INT)", 3000000, new int[] { 0 });
+		statistics.statementExecuted(script, 2, "UPDATE t\n   SET id = 1", 9000000, new int[] { 42 });
+		statistics.statementExecuted(script, 3, "SELECT 1", 1000000, new int[] { -1 });
+		statistics.statementExecuted(script, 4, "INSERT INTO t VALUES (1)", 5000000, new int[] { 1, 1 });
+		statistics.scriptApplied(script, 20000000, 5, 45);
+
+		String report = statistics.report();
+
+		assertThat(report, containsString("5 statements of 1 scripts executed in 18.000 ms"));
+		assertThat(report.indexOf("9.000 ms") < report.indexOf("5.000 ms"), is(true));
+		assertThat(report, containsString("#1: 001_script.sql, statement 2 (42 rows): UPDATE t SET id = 1"));
+		assertThat(report, containsString("statement 4 (2 rows): batch of 2: INSERT INTO t VALUES (1)"));
+		assertThat(report, containsString("#1: 001_script.sql, 5 statements (45 rows)"));
+		assertThat(report.contains("CREATE TABLE"), is(false));
+	}
+
+	@Test
+	public void shouldNotReportAnythingWithoutStatementsToReport() {
+		DeploymentStatistics statistics = new DeploymentStatistics(0);
+		statistics.statementExecuted(script, 1, "SELECT 1", 1000000, new int[] { -1 });
+
+		assertThat(statistics.report(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldTimeScriptsFromStartUntilTheirLastStatement() throws Exception {
+		File file = File.createTempFile("timings", ".jsonl");
+		file.deleteOnExit();
+
+		DeploymentStatistics statistics = new DeploymentStatistics(1);
+		statistics.writeJsonLinesTo(file);
+		statistics.scriptStarted(script);
+		statistics.statementExecuted(script, 1, "UPDATE t SET id = 1", 1000000, new int[] { 3 });
+		statistics.statementExecuted(script, 2, "INSERT INTO t VALUES (1)", 1000000, new int[] { 1, 1 });
+		// e.g. the other scripts of the same transaction
+		Thread.sleep(200);
+		statistics.scriptCommitted(script);
+		statistics.runFinished(1, null);
+
+		assertThat(statistics.report(), containsString("#1: 001_script.sql, 3 statements (5 rows)"));
+		String scriptLine = readLines(file).get(2);
+		double millis = Double.parseDouble(scriptLine.replaceAll(".*\"millis\":([0-9.]+).*", "$1"));
+		assertThat(millis < 200, is(true));
+	}
+
+	@Test
+	public void shouldKeepTheTimingsOfTheSameScriptOnSeveralTargetsApart() throws Exception {
+		File file = File.createTempFile("timings", ".jsonl");
+		file.deleteOnExit();
+
+		DeploymentStatistics statistics = new DeploymentStatistics(2);
+		statistics.writeJsonLinesTo(file);
+		DeploymentListener one = statistics.forTarget("sa@jdbc:one");
+		DeploymentListener two = statistics.forTarget("sa@jdbc:two");
+		one.scriptStarted(script);
+		two.scriptStarted(script);
+		one.statementExecuted(script, 1, "UPDATE t SET id = 1", 1000000, new int[] { 3 });
+		two.statementExecuted(script, 1, "UPDATE t SET id = 1", 1000000, new int[] { 4 });
+		two.scriptCommitted(script);
+		one.scriptCommitted(script);
+		statistics.runFinished(2, null);
+
+		String report = statistics.report();
+		assertThat(report, containsString("[sa@jdbc:one] #1: 001_script.sql, 1 statements (3 rows)"));
+		assertThat(report, containsString("[sa@jdbc:two] #1: 001_script.sql, 1 statements (4 rows)"));
+
+		List<String> lines = readLines(file);
+		assertThat(lines.size(), is(4));
+		assertThat(lines.get(0), startsWith("{\"type\":\"statement\",\"target\":\"sa@jdbc:one\",\"script\":"));
+		assertThat(lines.get(2), startsWith("{\"type\":\"script\",\"target\":\"sa@jdbc:two\",\"script\":"));
+		assertThat(lines.get(3), containsString("\"target\":\"sa@jdbc:one\""));
+	}
+
+	@Test
+	public void shouldReportFailuresToWriteTimingsToTheListener() {
+		final List<String> messages = new ArrayList<String>();
+
+		DeploymentStatistics statistics = new DeploymentStatistics(0);
+		statistics.setListener(new DeploymentListenerAdapter() {
+			@Override
+			public void info(String message) {
+				messages.add(message);
+			}
+		});
+		statistics.writeJsonLinesTo(new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int length) throws IOException {
+				throw new IOException("disk full");
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		statistics.statementExecuted(script, 1, "SELECT 1", 1000000, new int[] { -1 });
+		statistics.statementExecuted(script, 2, "SELECT 2", 1000000, new int[] { -1 });
+
+		assertThat(messages, is(Arrays.asList("Could not write timings: disk full")));
+	}
+
+	@Test
+	public void shouldWriteEveryStatementAndScriptAsJsonLine() throws Exception {
+		File file = File.createTempFile("timings", ".jsonl");
+		file.deleteOnExit();
+
+		DeploymentStatistics statistics = new DeploymentStatistics(0);
+		statistics.writeJsonLinesTo(file);
+		statistics.statementExecuted(script, 1, "INSERT INTO t VALUES ('a\"b')", 1500000, new int[] { 1, -2 });
+		statistics.scriptApplied(script, 2000000, 2, 1);
+		statistics.runFinished(1, null);
+
+		List<String> lines = readLines(file);
+		assertThat(lines.size(), is(2));
+		assertThat(lines.get(0), is("{\"type\":\"statement\",\"script\":\"#1: 001_script.sql\",\"statement\":1,"
+			+ "\"millis\":1.500,\"rows\":1,\"updateCounts\":[1,-2],\"sql\":\"INSERT INTO t VALUES ('a\\\"b')\"}"));
+		assertThat(lines.get(1), is("{\"type\":\"script\",\"script\":\"#1: 001_script.sql\",\"statements\":2,"
+			+ "\"millis\":2.000,\"rows\":1}"));
+	}
+
+	@Test
+	public void shouldEscapeControlCharactersInJson() {
+		assertThat(DeploymentStatistics.quote("a\n\tb\\\u0001"), is("\"a\\n\\tb\\\\\\u0001\""));
+	}
+
+	private static List<String> readLines(File file) throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			List<String> lines = new ArrayList<String>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+			return lines;
+		} finally {
+			reader.close();
+		}
+	}
+}
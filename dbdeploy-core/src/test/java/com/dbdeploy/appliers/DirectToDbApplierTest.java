@@ -1,27 +1,45 @@
 package com.dbdeploy.appliers;
 
 import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.database.TransactionMode;
 import com.dbdeploy.database.changelog.DatabaseSchemaVersionManager;
 import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.database.changelog.ScriptProgress;
+import com.dbdeploy.exceptions.DbDeployException;
 import com.dbdeploy.exceptions.ScriptFailedException;
 import com.dbdeploy.scripts.ChangeScript;
 import com.dbdeploy.scripts.Script;
+import org.apache.commons.codec.binary.Hex;
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnit44Runner;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.security.MessageDigest;
+import java.sql.BatchUpdateException;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 
@@ -47,9 +65,241 @@ public class DirectToDbApplierTest {
 		verify(queryExecuter).setAutoCommit(false);
 	}
 
+	@Test
+	public void shouldCommitAfterEveryScriptByDefault() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+
+		applier.apply(getChangeScripts(3));
+
+		verify(queryExecuter, times(3)).commit();
+	}
+
+	@Test
+	public void shouldApplyStatementsInOrderWhenReadingAhead() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setReadAhead(true);
+
+		applier.apply(Arrays.asList(
+			new ChangeScript(1, "script1", "a1;\na2;\n", ""),
+			new ChangeScript(2, "script2", "b1;\n", ""),
+			new ChangeScript(3, "script3", "c1;\nc2;\n", "")));
+
+		checkExecutionOrder("a1", "a2", "b1", "c1", "c2");
+		verify(queryExecuter, times(3)).commit();
+	}
+
+	@Test
+	public void shouldCommitOncePerNumberOfScripts() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setScriptsPerTransaction(2);
+
+		applier.apply(getChangeScripts(5));
+
+		verify(queryExecuter, times(3)).commit();
+	}
+
+	@Test
+	public void shouldCommitOnceForTheWholeRun() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setTransactionMode(TransactionMode.run);
+
+		applier.apply(getChangeScripts(5));
+
+		verify(queryExecuter).setAutoCommit(false);
+		verify(queryExecuter, times(1)).commit();
+	}
+
+	@Test
+	public void shouldApplyTheWholeTransactionAgainAfterATransientFailure() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setScriptsPerTransaction(2);
+		applier.setRetryPolicy(retryPolicy(1));
+
+		when(queryExecuter.execute("b1"))
+			.thenThrow(new SQLException("deadlock", "40001"))
+			.thenReturn(1);
+
+		applier.apply(Arrays.asList(
+			new ChangeScript(1, "script1", "a1;\n", ""),
+			new ChangeScript(2, "script2", "b1;\n", "")));
+
+		checkExecutionOrder("a1", "b1", "a1", "b1");
+		verify(queryExecuter).rollback();
+		verify(queryExecuter, times(1)).commit();
+	}
+
+	@Test
+	public void shouldNotRetryFailuresThatAreNotTransient() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setRetryPolicy(retryPolicy(3));
+
+		doThrow(new SQLException("syntax error", "42000")).when(queryExecuter).execute("a1");
+
+		try {
+			applier.apply(Arrays.asList(new ChangeScript(1, "script1", "a1;\n", "")));
+			fail("exception expected");
+		} catch (ScriptFailedException e) {
+			assertThat(e.getExecutedSql(), is("a1"));
+		}
+
+		verify(queryExecuter, times(1)).execute("a1");
+		verify(queryExecuter, never()).rollback();
+	}
+
+	@Test
+	public void shouldRetryOnlyTheFailedStatementInTransactionModeStatement() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setTransactionMode(TransactionMode.statement);
+		applier.setRetryPolicy(retryPolicy(1));
+
+		when(queryExecuter.execute("a2"))
+			.thenThrow(new SQLException("lock wait timeout exceeded", "HY000", 1205))
+			.thenReturn(1);
+
+		applier.apply(Arrays.asList(new ChangeScript(1, "script1", "a1;\na2;\n", "")));
+
+		InOrder inOrder = inOrder(queryExecuter);
+		inOrder.verify(queryExecuter).execute("a1");
+		inOrder.verify(queryExecuter, times(2)).execute("a2");
+		verify(queryExecuter, never()).rollback();
+	}
+
+	@Test
+	public void shouldRetryTheStatementsSinceTheLastSavepointAfterATransientFailure() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setSavepointInterval(2);
+		applier.setRetryPolicy(retryPolicy(1));
+
+		Savepoint savepoint = mock(Savepoint.class);
+		when(queryExecuter.setSavepoint()).thenReturn(savepoint);
+		when(queryExecuter.execute("a3"))
+			.thenThrow(new SQLException("deadlock", "40001"))
+			.thenReturn(1);
+
+		applier.apply(Arrays.asList(new ChangeScript(1, "script1", "a1;\na2;\na3;\na4;\n", "")));
+
+		InOrder inOrder = inOrder(queryExecuter);
+		inOrder.verify(queryExecuter).execute("a1");
+		inOrder.verify(queryExecuter).execute("a2");
+		inOrder.verify(queryExecuter).setSavepoint();
+		inOrder.verify(queryExecuter).execute("a3");
+		inOrder.verify(queryExecuter).rollback(savepoint);
+		inOrder.verify(queryExecuter).execute("a3");
+		inOrder.verify(queryExecuter).execute("a4");
+		verify(queryExecuter, never()).rollback();
+		verify(queryExecuter, times(1)).commit();
+	}
+
+	@Test
+	public void shouldNotSkipStatementsWhenTheRetriedStatementsFailAgain() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setSavepointInterval(3);
+		applier.setRetryPolicy(retryPolicy(2));
+
+		Savepoint savepoint = mock(Savepoint.class);
+		when(queryExecuter.setSavepoint()).thenReturn(savepoint);
+		when(queryExecuter.execute("a6"))
+			.thenThrow(new SQLException("deadlock", "40001"))
+			.thenReturn(1);
+		when(queryExecuter.execute("a5"))
+			.thenReturn(1)
+			.thenThrow(new SQLException("deadlock", "40001"))
+			.thenReturn(1);
+
+		applier.apply(Arrays.asList(new ChangeScript(1, "script1", "a1;\na2;\na3;\na4;\na5;\na6;\na7;\n", "")));
+
+		checkExecutionOrder("a1", "a2", "a3", "a4", "a5", "a6", "a4", "a5", "a4", "a5", "a6", "a7");
+		verify(queryExecuter, times(2)).rollback(savepoint);
+		verify(queryExecuter, times(2)).execute("a6");
+		verify(queryExecuter, times(1)).commit();
+	}
+
+	@Test
+	public void shouldContinueAfterTheStatementsCommittedBeforeAFailure() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setSavepointInterval(2);
+		applier.setResumable(true);
+
+		when(schemaVersionManager.findScriptProgress()).thenReturn(new HashMap<Long, ScriptProgress>());
+		when(queryExecuter.setSavepoint()).thenReturn(mock(Savepoint.class));
+		doThrow(new SQLException("syntax error", "42000")).when(queryExecuter).execute("a3 broken");
+
+		ChangeScript broken = new ChangeScript(1, "script1", "a1;\na2;\na3 broken;\n", "");
+		try {
+			applier.apply(Arrays.asList(broken));
+			fail("exception expected");
+		} catch (ScriptFailedException e) {
+			assertThat(e.getStatement(), is(3));
+		}
+
+		InOrder inOrder = inOrder(schemaVersionManager, queryExecuter);
+		inOrder.verify(schemaVersionManager).recordScriptProgress(broken, 2, digest("a1", "a2"));
+		inOrder.verify(queryExecuter).commit();
+		verify(schemaVersionManager, never()).recordScriptApplied(broken);
+
+		ChangeScript fixed = new ChangeScript(1, "script1", "a1;\na2;\na3;\n", "");
+		applier.apply(Arrays.asList(fixed));
+
+		verify(queryExecuter, times(1)).execute("a1");
+		verify(queryExecuter, times(1)).execute("a2");
+		verify(queryExecuter).execute("a3");
+		verify(schemaVersionManager).removeScriptProgress(fixed);
+		verify(schemaVersionManager).recordScriptApplied(fixed);
+		verify(queryExecuter, times(2)).commit();
+	}
+
+	@Test
+	public void shouldSkipTheStatementsCommittedByAPreviousRun() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setSavepointInterval(2);
+		applier.setResumable(true);
+
+		Map<Long, ScriptProgress> progress = new HashMap<Long, ScriptProgress>();
+		progress.put(1L, new ScriptProgress(2, digest("a1", "a2")));
+		when(schemaVersionManager.findScriptProgress()).thenReturn(progress);
+
+		applier.apply(Arrays.asList(new ChangeScript(1, "script1", "a1;\na2;\na3;\n", "")));
+
+		verify(queryExecuter, never()).execute("a1");
+		verify(queryExecuter, never()).execute("a2");
+		verify(queryExecuter).execute("a3");
+	}
+
+	@Test
+	public void shouldNotSkipStatementsThatHaveChangedSinceTheyWereCommitted() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setSavepointInterval(1);
+		applier.setResumable(true);
+
+		Map<Long, ScriptProgress> progress = new HashMap<Long, ScriptProgress>();
+		progress.put(1L, new ScriptProgress(1, "digest of other statements"));
+		when(schemaVersionManager.findScriptProgress()).thenReturn(progress);
+
+		try {
+			applier.apply(Arrays.asList(new ChangeScript(1, "script1", "a1;\na2;\n", "")));
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), is("The first 1 statements of change script #1: script1 have been changed "
+				+ "since a previous run committed them, according to the changelog"));
+		}
+
+		verify(queryExecuter, never()).execute("a2");
+	}
+
+	@Test
+	public void shouldAutoCommitEveryStatement() throws Exception {
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setTransactionMode(TransactionMode.statement);
+
+		applier.apply(getChangeScripts(5));
+
+		verify(queryExecuter).setAutoCommit(true);
+		verify(queryExecuter, never()).commit();
+	}
+
 	@Test
 	public void shouldApplyChangeScriptBySplittingContentUsingTheSplitter() throws Exception {
-		when(splitter.split("split; content")).thenReturn(Arrays.asList("split", "content"));
+		givenStatements("split; content", "split", "content");
 
 		applier.applyChangeScript(new ChangeScript(1, "script", "split; content", "undoContent1"));
 
@@ -58,8 +308,8 @@ public class DirectToDbApplierTest {
 
 	@Test
 	public void shouldApplyPreScript() throws Exception {
-		when(splitter.split("prescript")).thenReturn(Arrays.asList("prescript"));
-		when(splitter.split("content")).thenReturn(Arrays.asList("content"));
+		givenStatements("prescript", "prescript");
+		givenStatements("content", "content");
 		applier.setPreScriptExecutionScript(new Script("preScript", "prescript"));
 
 		applier.apply(getSimpleChangeScripts());
@@ -70,8 +320,8 @@ public class DirectToDbApplierTest {
 
 	@Test
 	public void shouldApplyPostScript() throws Exception {
-		when(splitter.split("content")).thenReturn(Arrays.asList("content"));
-		when(splitter.split("postscript")).thenReturn(Arrays.asList("postscript"));
+		givenStatements("content", "content");
+		givenStatements("postscript", "postscript");
 		applier.setPostScriptExecutionScript(new Script("postScript", "postscript"));
 
 		applier.apply(getSimpleChangeScripts());
@@ -85,6 +335,60 @@ public class DirectToDbApplierTest {
 		return changeScripts;
 	}
 
+	private static RetryPolicy retryPolicy(int maxRetries) {
+		RetryPolicy retryPolicy = new RetryPolicy(maxRetries, "mysql");
+		retryPolicy.setInitialBackoffMillis(1);
+		return retryPolicy;
+	}
+
+	/**
+	 * the digest recorded for the statements committed before a failure
+	 */
+	private static String digest(String... statements) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		for (String statement : statements) {
+			digest.update((statement + "\n").getBytes("UTF-8"));
+		}
+		return new String(Hex.encodeHex(digest.digest()));
+	}
+
+	private void givenStatements(String content, String... statements) {
+		when(splitter.statements(argThat(readerOf(content)))).thenReturn(Arrays.asList(statements).iterator());
+	}
+
+	private static Matcher<Reader> readerOf(final String content) {
+		return new BaseMatcher<Reader>() {
+			public boolean matches(Object item) {
+				if (!(item instanceof StringReader)) {
+					return false;
+				}
+
+				try {
+					Reader reader = (Reader) item;
+					char[] buffer = new char[content.length() + 1];
+					reader.mark(buffer.length);
+					int length = reader.read(buffer);
+					reader.reset();
+					return content.equals(new String(buffer, 0, Math.max(length, 0)));
+				} catch (IOException e) {
+					return false;
+				}
+			}
+
+			public void describeTo(Description description) {
+				description.appendText("reader of ").appendValue(content);
+			}
+		};
+	}
+
+	private ArrayList<ChangeScript> getChangeScripts(int count) {
+		ArrayList<ChangeScript> changeScripts = new ArrayList<ChangeScript>();
+		for (int i = 1; i <= count; i++) {
+			changeScripts.add(new ChangeScript(i, "script" + i, "content", "undoContent" + i));
+		}
+		return changeScripts;
+	}
+
 	private void checkExecutionOrder(String... statements) throws SQLException {
 		InOrder inOrder = inOrder(queryExecuter);
 		for (int i = 0; i < statements.length; i++) {
@@ -94,7 +398,7 @@ public class DirectToDbApplierTest {
 
 	@Test
 	public void shouldRethrowSqlExceptionsWithInformationAboutWhatStringFailed() throws Exception {
-		when(splitter.split("split; content")).thenReturn(Arrays.asList("split", "content"));
+		givenStatements("split; content", "split", "content");
 
 		Script script = new ChangeScript(1, "script", "split; content", "undoContent1");
 
@@ -111,6 +415,50 @@ public class DirectToDbApplierTest {
 		verify(queryExecuter, never()).execute("content");
 	}
 
+	@Test
+	public void shouldBatchConsecutiveDmlStatements() throws Exception {
+		givenStatements("content",
+			"CREATE TABLE t (id INT)", "INSERT INTO t VALUES (1)", "insert into t values (2)",
+			"-- comment\nUPDATE t SET id = 3", "DELETE FROM t", "DROP TABLE t");
+		applier.setBatchSize(2);
+
+		applier.applyScript(new ChangeScript(1, "script", "content", "undoContent1"));
+
+		InOrder inOrder = inOrder(queryExecuter);
+		inOrder.verify(queryExecuter).execute("CREATE TABLE t (id INT)");
+		inOrder.verify(queryExecuter).executeBatch(Arrays.asList("INSERT INTO t VALUES (1)", "insert into t values (2)"));
+		inOrder.verify(queryExecuter).executeBatch(Arrays.asList("-- comment\nUPDATE t SET id = 3", "DELETE FROM t"));
+		inOrder.verify(queryExecuter).execute("DROP TABLE t");
+	}
+
+	@Test
+	public void shouldReportFailingStatementOfBatch() throws Exception {
+		givenStatements("content",
+			"CREATE TABLE t (id INT)", "INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)", "INSERT INTO t VALUES (3)");
+		applier.setBatchSize(10);
+
+		doThrow(new BatchUpdateException("dummy exception", new int[] { 1 }))
+			.when(queryExecuter).executeBatch(Arrays.asList(
+				"INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)", "INSERT INTO t VALUES (3)"));
+
+		try {
+			applier.applyScript(new ChangeScript(1, "script", "content", "undoContent1"));
+			fail("exception expected");
+		} catch (ScriptFailedException e) {
+			assertThat(e.getStatement(), is(3));
+			assertThat(e.getExecutedSql(), is("INSERT INTO t VALUES (2)"));
+		}
+	}
+
+	@Test
+	public void shouldNotBatchByDefault() throws Exception {
+		givenStatements("content", "INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)");
+
+		applier.applyScript(new ChangeScript(1, "script", "content", "undoContent1"));
+
+		checkExecutionOrder("INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)");
+	}
+
 	@Test
 	public void shouldInsertToSchemaVersionTable() throws Exception {
 		ChangeScript changeScript = new ChangeScript(1, "script.sql", "doContent1", "undoContent1");
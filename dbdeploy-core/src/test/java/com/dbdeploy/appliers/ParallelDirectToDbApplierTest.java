@@ -0,0 +1,165 @@
+package com.dbdeploy.appliers;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.dbdeploy.AppliedChangesProvider;
+import com.dbdeploy.database.changelog.AppliedChanges;
+import com.dbdeploy.database.changelog.ChangeLogEntry;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.scripts.ChangeScript;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ParallelDirectToDbApplierTest {
+	private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+	private final AppliedChanges appliedChanges = new AppliedChanges();
+
+	@Test
+	public void shouldApplyScriptsWithoutHeaderTogetherOnTheFirstConnection() {
+		RecordingApplier first = new RecordingApplier("first");
+		RecordingApplier second = new RecordingApplier("second");
+
+		parallel(first, second)
+			.apply(Arrays.asList(script(1, ""), script(2, ""), script(3, "")));
+
+		assertThat(events, is(Arrays.asList("first: #1 #2 #3")));
+	}
+
+	@Test
+	public void shouldApplyScriptsOfOneGroupInOrderAndOnlyAfterTheirDependencies() {
+		ChangeScript one = script(1, "--//@GROUP a\n");
+		ChangeScript two = script(2, "--//@GROUP b\n");
+		ChangeScript three = script(3, "--//@GROUP a\n");
+		ChangeScript four = script(4, "--//@DEPENDS 2, 3\n");
+
+		parallel(new RecordingApplier("x"), new RecordingApplier("y"), new RecordingApplier("z"))
+			.apply(Arrays.asList(one, two, three, four));
+
+		List<String> scripts = appliedScripts();
+		assertThat(scripts.size(), is(4));
+		assertThat(scripts.indexOf("#1") < scripts.indexOf("#3"), is(true));
+		assertThat(scripts.indexOf("#2") < scripts.indexOf("#4"), is(true));
+		assertThat(scripts.indexOf("#3") < scripts.indexOf("#4"), is(true));
+	}
+
+	@Test
+	public void shouldApplyScriptsWithoutHeaderOnlyAfterAllScriptsBeforeThem() {
+		parallel(new RecordingApplier("x"), new RecordingApplier("y"))
+			.apply(Arrays.asList(script(1, "--//@GROUP a\n"), script(2, "--//@GROUP b\n"), script(3, ""),
+				script(4, "--//@GROUP a\n")));
+
+		List<String> scripts = appliedScripts();
+		assertThat(scripts.get(2), is("#3"));
+		assertThat(scripts.get(3), is("#4"));
+	}
+
+	@Test
+	public void shouldNotStartFurtherScriptsAfterAFailure() {
+		try {
+			parallel(new FailingApplier("x"), new FailingApplier("y"))
+				.apply(Arrays.asList(script(1, "--//@GROUP a\n"), script(2, "--//@GROUP a\n")));
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), is("script 1 failed"));
+		}
+
+		assertThat(events.isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldAcceptDependenciesOnScriptsAppliedBefore() {
+		appliedChanges.add(1, "");
+
+		parallel(new RecordingApplier("x"), new RecordingApplier("y"))
+			.apply(Arrays.asList(script(2, "--//@DEPENDS 1\n"), script(3, "--//@GROUP a\n")));
+
+		assertThat(appliedScripts().size(), is(2));
+	}
+
+	@Test
+	public void shouldRejectDependenciesOnUnknownScriptsBeforeApplyingAny() {
+		appliedChanges.add(1, "");
+
+		try {
+			parallel(new RecordingApplier("x"), new RecordingApplier("y"))
+				.apply(Arrays.asList(script(3, ""), script(4, "--//@DEPENDS 1, 2\n")));
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage().contains("#2"), is(true));
+		}
+
+		assertThat(events.isEmpty(), is(true));
+	}
+
+	@Test(expected = DbDeployException.class)
+	public void shouldRejectDependenciesOnLaterScripts() {
+		parallel(new RecordingApplier("x"), new RecordingApplier("y"))
+			.apply(Arrays.asList(script(1, "--//@DEPENDS 2\n"), script(2, "--//@GROUP a\n")));
+	}
+
+	private ParallelDirectToDbApplier parallel(DirectToDbApplier... appliers) {
+		return new ParallelDirectToDbApplier(Arrays.asList(appliers), new AppliedChangesProvider() {
+			public List<Long> findChangeLogEntryIds() {
+				return appliedChanges.getIds();
+			}
+
+			public List<ChangeLogEntry> findChangeLogEntries() {
+				throw new UnsupportedOperationException();
+			}
+
+			public AppliedChanges findAppliedChanges() {
+				return appliedChanges;
+			}
+		});
+	}
+
+	private List<String> appliedScripts() {
+		List<String> scripts = new ArrayList<String>();
+		for (String event : events) {
+			scripts.add(event.substring(event.indexOf(' ') + 1));
+		}
+		return scripts;
+	}
+
+	private static ChangeScript script(long id, String header) {
+		return new ChangeScript(id, id + "_script.sql", header + "SELECT 1;\n", "");
+	}
+
+	private class FailingApplier extends RecordingApplier {
+		public FailingApplier(String name) {
+			super(name);
+		}
+
+		@Override
+		public void apply(List<ChangeScript> changeScripts) {
+			if (changeScripts.get(0).getId() == 1) {
+				throw new DbDeployException("script 1 failed");
+			}
+			super.apply(changeScripts);
+		}
+	}
+
+	private class RecordingApplier extends DirectToDbApplier {
+		private final String name;
+
+		public RecordingApplier(String name) {
+			super(null, null, null);
+			this.name = name;
+		}
+
+		@Override
+		public void apply(List<ChangeScript> changeScripts) {
+			StringBuilder event = new StringBuilder(name + ":");
+			for (ChangeScript script : changeScripts) {
+				event.append(" #").append(script.getId());
+			}
+			events.add(event.toString());
+		}
+	}
+}
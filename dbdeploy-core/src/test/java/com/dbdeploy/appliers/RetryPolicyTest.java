@@ -0,0 +1,88 @@
+package com.dbdeploy.appliers;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.dbdeploy.exceptions.ScriptFailedException;
+import com.dbdeploy.scripts.ChangeScript;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+	private final RetryPolicy retryPolicy = new RetryPolicy(3);
+
+	@Test
+	public void shouldRecogniseDeadlocksAndLockTimeoutsBySqlState() {
+		assertThat(retryPolicy.isTransient(new SQLException("deadlock", "40001")), is(true));
+		assertThat(retryPolicy.isTransient(new SQLException("deadlock detected", "40P01")), is(true));
+		assertThat(retryPolicy.isTransient(new SQLException("lock not available", "55P03")), is(true));
+
+		assertThat(retryPolicy.isTransient(new SQLException("integrity constraint violation", "40002")), is(false));
+		assertThat(retryPolicy.isTransient(new SQLException("statement completion unknown", "40003")), is(false));
+		assertThat(retryPolicy.isTransient(new SQLException("syntax error", "42000", 1064)), is(false));
+		assertThat(retryPolicy.isTransient(new SQLException("no state")), is(false));
+	}
+
+	@Test
+	public void shouldOnlyCompareTheErrorCodesOfTheDatabaseAppliedTo() {
+		SQLException oracleDeadlock = new SQLException("ORA-00060: deadlock detected", "61000", 60);
+		SQLException mysqlLockWaitTimeout = new SQLException("lock wait timeout exceeded", "HY000", 1205);
+
+		assertThat(new RetryPolicy(3, "ora").isTransient(oracleDeadlock), is(true));
+		assertThat(new RetryPolicy(3, "ora").isTransient(mysqlLockWaitTimeout), is(false));
+		assertThat(new RetryPolicy(3, "mysql").isTransient(mysqlLockWaitTimeout), is(true));
+		assertThat(new RetryPolicy(3, "mysql").isTransient(oracleDeadlock), is(false));
+		assertThat(new RetryPolicy(3, "hsql").isTransient(oracleDeadlock), is(false));
+		assertThat(retryPolicy.isTransient(mysqlLockWaitTimeout), is(false));
+	}
+
+	@Test
+	public void shouldLookAtCausesAndChainedExceptions() {
+		SQLException batchFailure = new SQLException("batch failed");
+		batchFailure.setNextException(new SQLException("deadlock", "40001"));
+
+		ScriptFailedException failure = new ScriptFailedException(batchFailure,
+			new ChangeScript(1, "script", "content", ""), 1, "UPDATE t SET id = 1");
+
+		assertThat(retryPolicy.isTransient(failure), is(true));
+	}
+
+	@Test
+	public void shouldRetryTransientFailuresUpToTheMaximumNumberOfRetries() {
+		SQLException deadlock = new SQLException("deadlock", "40001");
+
+		assertThat(retryPolicy.shouldRetry(deadlock, 3), is(true));
+		assertThat(retryPolicy.shouldRetry(deadlock, 4), is(false));
+		assertThat(new RetryPolicy(0).shouldRetry(deadlock, 1), is(false));
+	}
+
+	@Test
+	public void shouldUseConfiguredStatesAndCodesOnly() {
+		retryPolicy.setSqlStates(Arrays.asList("HYT00"));
+		retryPolicy.setErrorCodes(Arrays.asList(4711));
+
+		assertThat(retryPolicy.isTransient(new SQLException("deadlock", "40001")), is(false));
+		assertThat(retryPolicy.isTransient(new SQLException("timeout", "HYT00")), is(true));
+		assertThat(retryPolicy.isTransient(new SQLException("custom", null, 4711)), is(true));
+	}
+
+	@Test
+	public void shouldDoubleTheBackoffWithJitterUpToTheMaximum() {
+		retryPolicy.setInitialBackoffMillis(100);
+		retryPolicy.setMaxBackoffMillis(1000);
+
+		for (int i = 0; i < 100; i++) {
+			assertBetween(retryPolicy.backoffMillis(1), 50, 100);
+			assertBetween(retryPolicy.backoffMillis(2), 100, 200);
+			assertBetween(retryPolicy.backoffMillis(4), 400, 800);
+			assertBetween(retryPolicy.backoffMillis(5), 500, 1000);
+			assertBetween(retryPolicy.backoffMillis(100), 500, 1000);
+		}
+	}
+
+	private static void assertBetween(long value, long min, long max) {
+		assertThat(value + " between " + min + " and " + max, value >= min && value <= max, is(true));
+	}
+}
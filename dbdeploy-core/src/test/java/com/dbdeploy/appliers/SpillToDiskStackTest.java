@@ -0,0 +1,60 @@
+package com.dbdeploy.appliers;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SpillToDiskStackTest {
+
+	@Test
+	public void shouldPopInReverseOrderInMemory() throws Exception {
+		SpillToDiskStack stack = new SpillToDiskStack(1000);
+		stack.push("a");
+		stack.push("b");
+
+		assertThat(stack.pop(), is("b"));
+		assertThat(stack.pop(), is("a"));
+		assertThat(stack.isEmpty(), is(true));
+		assertThat(stack.pop(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldPopInReverseOrderWhenSpilledToDisk() throws Exception {
+		SpillToDiskStack stack = new SpillToDiskStack(10);
+		try {
+			for (int i = 0; i < 100; i++) {
+				stack.push("section " + i + " \u00e4\u00f6\u00fc");
+			}
+
+			for (int i = 99; i >= 0; i--) {
+				assertThat(stack.isEmpty(), is(false));
+				assertThat(stack.pop(), is("section " + i + " \u00e4\u00f6\u00fc"));
+			}
+
+			assertThat(stack.isEmpty(), is(true));
+		} finally {
+			stack.close();
+		}
+	}
+
+	@Test
+	public void shouldKeepOrderWhenPushingAfterPopping() throws Exception {
+		SpillToDiskStack stack = new SpillToDiskStack(3);
+		try {
+			stack.push("one");
+			stack.push("two");
+			assertThat(stack.pop(), is("two"));
+			stack.push("three");
+			stack.push("four");
+
+			assertThat(stack.pop(), is("four"));
+			assertThat(stack.pop(), is("three"));
+			assertThat(stack.pop(), is("one"));
+			assertThat(stack.isEmpty(), is(true));
+		} finally {
+			stack.close();
+		}
+	}
+}
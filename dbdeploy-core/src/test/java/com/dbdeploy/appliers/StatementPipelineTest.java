@@ -0,0 +1,71 @@
+package com.dbdeploy.appliers;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.scripts.Script;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StatementPipelineTest {
+	private final QueryStatementSplitter splitter = new QueryStatementSplitter();
+
+	@Test
+	public void shouldHandOverTheStatementsOfEachScriptInOrder() {
+		StatementPipeline pipeline = new StatementPipeline(Arrays.asList(
+			new Script("one", "a1;\na2;\n"),
+			new Script("empty", ""),
+			new Script("two", "b1;\n")), splitter, 4);
+
+		assertThat(drain(pipeline.nextScript()), is(Arrays.asList("a1", "a2")));
+		assertThat(drain(pipeline.nextScript()), is(Arrays.<String>asList()));
+		assertThat(drain(pipeline.nextScript()), is(Arrays.asList("b1")));
+		pipeline.close();
+	}
+
+	@Test
+	public void shouldPassStatementsLargerThanTheCapacity() {
+		StatementPipeline pipeline = new StatementPipeline(Arrays.asList(
+			new Script("one", "a very long statement;\nanother very long statement;\n")), splitter, 4);
+
+		assertThat(drain(pipeline.nextScript()),
+			is(Arrays.asList("a very long statement", "another very long statement")));
+		pipeline.close();
+	}
+
+	@Test
+	public void shouldReportFailureToReadAScriptWhenItIsReached() {
+		Script unreadable = new Script("unreadable", "") {
+			@Override
+			public Reader openContent() {
+				throw new DbDeployException("cannot read");
+			}
+		};
+		StatementPipeline pipeline = new StatementPipeline(Arrays.asList(
+			new Script("one", "a1;\n"), unreadable), splitter, 1024);
+
+		assertThat(drain(pipeline.nextScript()), is(Arrays.asList("a1")));
+		try {
+			pipeline.nextScript().hasNext();
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), is("cannot read"));
+		}
+	}
+
+	private static List<String> drain(Iterator<String> statements) {
+		List<String> result = new ArrayList<String>();
+		while (statements.hasNext()) {
+			result.add(statements.next());
+		}
+		return result;
+	}
+}
@@ -2,10 +2,15 @@ package com.dbdeploy.appliers;
 
 	import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.scripts.ChangeScript;
 import org.apache.commons.io.output.NullWriter;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -22,4 +27,21 @@ public class TemplateBasedApplierTest {
 					"Check that you have got the name of the database syntax correct."));
 		}
 	}
+
+	@Test
+	public void shouldRenderTheSameOutputWhenStreaming() throws Exception {
+		List<ChangeScript> scripts = Arrays.asList(
+				new ChangeScript(1, "001_first.sql", "CREATE TABLE a (id INT);\n", "DROP TABLE a;\n"),
+				new ChangeScript(2, "002_second.sql", "CREATE TABLE b (id INT);\n", "DROP TABLE b;\n"));
+
+		StringWriter expected = new StringWriter();
+		new TemplateBasedApplier(expected, "hsql", "changelog", ";", DelimiterType.normal, null).apply(scripts);
+
+		StringWriter actual = new StringWriter();
+		TemplateBasedApplier streamingApplier = new TemplateBasedApplier(actual, "hsql", "changelog", ";", DelimiterType.normal, null);
+		streamingApplier.setStreaming(true);
+		streamingApplier.apply(scripts);
+
+		assertThat(actual.toString(), is(expected.toString()));
+	}
 }
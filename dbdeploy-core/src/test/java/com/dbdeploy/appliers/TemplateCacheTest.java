@@ -0,0 +1,51 @@
+package com.dbdeploy.appliers;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TemplateCacheTest {
+
+	private final File directory = new File(System.getProperty("java.io.tmpdir"), "templateCacheTest");
+
+	@After
+	public void tearDown() {
+		TemplateCache.clear();
+
+		for (int i = 0; i < TemplateCache.MAX_DIRECTORIES; i++) {
+			new File(directory, "templates" + i).delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void shouldShareConfigurationForTheSameTemplateDirectory() throws Exception {
+		File directory = new File(System.getProperty("java.io.tmpdir"));
+
+		assertThat(TemplateCache.getConfiguration(directory),
+			is(sameInstance(TemplateCache.getConfiguration(new File(directory, ".")))));
+		assertThat(TemplateCache.getConfiguration(null), is(sameInstance(TemplateCache.getConfiguration(null))));
+		assertThat(TemplateCache.getConfiguration(directory), is(not(sameInstance(TemplateCache.getConfiguration(null)))));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedTemplateDirectory() throws Exception {
+		directory.mkdir();
+		Object configuration = TemplateCache.getConfiguration(directory);
+
+		for (int i = 0; i < TemplateCache.MAX_DIRECTORIES; i++) {
+			File templates = new File(directory, "templates" + i);
+			templates.mkdir();
+			TemplateCache.getConfiguration(templates);
+		}
+
+		assertThat(TemplateCache.size(), is(TemplateCache.MAX_DIRECTORIES));
+		assertThat(TemplateCache.getConfiguration(directory), is(not(sameInstance(configuration))));
+	}
+}
@@ -4,6 +4,8 @@ import org.apache.commons.lang.SystemUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.StringReader;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
@@ -69,6 +71,19 @@ public class QueryStatementSplitterTest {
         assertThat(result.size(), is(2));
     }
 
+	@Test
+	public void shouldReadStatementsOneAtATimeFromAReader() throws Exception {
+		splitter.setOutputLineEnding(LineEnding.lf);
+
+		Iterator<String> statements = splitter.statements(new StringReader("SELECT\r\n\r\n1;\nSELECT 2;\n\nSELECT 3"));
+
+		assertThat(statements.next(), is("SELECT\n1"));
+		assertThat(statements.next(), is("SELECT 2"));
+		assertThat(statements.hasNext(), is(true));
+		assertThat(statements.next(), is("SELECT 3"));
+		assertThat(statements.hasNext(), is(false));
+	}
+
 	@Test
 	public void shouldSupportDefinedNewLineCharacters() throws Exception {
 		splitter.setOutputLineEnding(LineEnding.crlf);
@@ -0,0 +1,130 @@
+package com.dbdeploy.database;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SqlLexerTest {
+	private QueryStatementSplitter splitter;
+
+	@Before
+	public void setUp() throws Exception {
+		splitter = new QueryStatementSplitter();
+		splitter.setDelimiterType(DelimiterType.sql);
+		splitter.setOutputLineEnding(LineEnding.lf);
+	}
+
+	@Test
+	public void shouldSplitOnDelimiterAnywhereInALine() throws Exception {
+		assertThat(splitter.split("SELECT 1; SELECT 2;\nSELECT 3"), is(statements("SELECT 1", "SELECT 2", "SELECT 3")));
+	}
+
+	@Test
+	public void shouldIgnoreDelimitersInStringLiteralsAndQuotedIdentifiers() throws Exception {
+		assertThat(splitter.split("INSERT INTO \"a;b\" VALUES ('it''s;\n');\nSELECT `c;d` FROM t;"),
+			is(statements("INSERT INTO \"a;b\" VALUES ('it''s;\n')", "SELECT `c;d` FROM t")));
+	}
+
+	@Test
+	public void shouldIgnoreDelimitersInComments() throws Exception {
+		assertThat(splitter.split("SELECT 1 -- first;\n/* second; */ FROM dual;\nSELECT 2;"),
+			is(statements("SELECT 1 -- first;\n/* second; */ FROM dual", "SELECT 2")));
+	}
+
+	@Test
+	public void shouldSkipStatementsConsistingOfCommentsOnly() throws Exception {
+		assertThat(splitter.split("SELECT 1;\n\n-- the end\n"), is(statements("SELECT 1")));
+	}
+
+	@Test
+	public void shouldIgnoreDelimitersInDollarQuotedStrings() throws Exception {
+		String function = "CREATE FUNCTION f() RETURNS integer AS $body$\nBEGIN\n  RETURN 1;\nEND;\n$body$ LANGUAGE plpgsql";
+
+		assertThat(splitter.split(function + ";\nSELECT $$;$$;"), is(statements(function, "SELECT $$;$$")));
+	}
+
+	@Test
+	public void shouldNotTreatPositionalParametersAsDollarQuotes() throws Exception {
+		assertThat(splitter.split("PREPARE p AS SELECT $1;\nSELECT 2;"), is(statements("PREPARE p AS SELECT $1", "SELECT 2")));
+	}
+
+	@Test
+	public void shouldEndPlSqlBlocksWithASlashOnItsOwnLine() throws Exception {
+		String procedure = "CREATE OR REPLACE PROCEDURE p IS\n  v NUMBER;\nBEGIN\n  v := 1 / 2;\nEND;";
+		String block = "BEGIN\n  p;\nEND;";
+
+		assertThat(splitter.split(procedure + "\n/\n" + block + "\n  /  \nSELECT 1 FROM dual;"),
+			is(statements(procedure, block, "SELECT 1 FROM dual")));
+	}
+
+	@Test
+	public void shouldEndStatementsWithASlashOnItsOwnLine() throws Exception {
+		assertThat(splitter.split("CREATE TABLE t (id NUMBER)\n/\nSELECT 1 FROM dual"),
+			is(statements("CREATE TABLE t (id NUMBER)", "SELECT 1 FROM dual")));
+	}
+
+	@Test
+	public void shouldNotTreatTransactionStatementsAndTriggersWithoutBodyAsBlocks() throws Exception {
+		assertThat(splitter.split("BEGIN;\nCREATE TRIGGER t BEFORE INSERT ON x FOR EACH ROW EXECUTE PROCEDURE f();\nCOMMIT;"),
+			is(statements("BEGIN", "CREATE TRIGGER t BEFORE INSERT ON x FOR EACH ROW EXECUTE PROCEDURE f()", "COMMIT")));
+	}
+
+	@Test
+	public void shouldConvertLineEndings() throws Exception {
+		splitter.setOutputLineEnding(LineEnding.crlf);
+
+		assertThat(splitter.split("SELECT\r1\n,\r\n2;"), is(statements("SELECT\r\n1\r\n,\r\n2")));
+	}
+
+	@Test
+	public void shouldSupportOtherDelimiters() throws Exception {
+		splitter.setDelimiter("GO");
+
+		assertThat(splitter.split("SELECT 1\nGO\nSELECT 'GO'\nGO"), is(statements("SELECT 1", "SELECT 'GO'")));
+	}
+
+	@Test
+	public void shouldOnlyRecogniseWordDelimitersOnTheirOwnLine() throws Exception {
+		splitter.setDelimiter("GO");
+
+		assertThat(splitter.split("SELECT category FROM t GO\n  go  \nGOTO label\nGO"),
+			is(statements("SELECT category FROM t GO", "GOTO label")));
+	}
+
+	@Test
+	public void shouldNotTreatFunctionBodiesInStringsAsBlocks() throws Exception {
+		assertThat(splitter.split("CREATE FUNCTION f() RETURNS integer AS 'SELECT 1;' LANGUAGE sql;\nSELECT f();"),
+			is(statements("CREATE FUNCTION f() RETURNS integer AS 'SELECT 1;' LANGUAGE sql", "SELECT f()")));
+	}
+
+	@Test
+	public void shouldNotTreatTransactSqlProceduresAsBlocks() throws Exception {
+		assertThat(splitter.split("CREATE PROCEDURE p AS SELECT 1;\nEXEC p;"),
+			is(statements("CREATE PROCEDURE p AS SELECT 1", "EXEC p")));
+
+		splitter.setDelimiter("GO");
+
+		String procedure = "CREATE PROCEDURE p AS\nBEGIN\n\tSELECT 1;\n\tSELECT 2;\nEND";
+		assertThat(splitter.split(procedure + "\nGO\nEXEC p\nGO"), is(statements(procedure, "EXEC p")));
+	}
+
+	@Test
+	public void shouldSplitStatementsLongerThanTheReadBuffer() throws Exception {
+		StringBuilder values = new StringBuilder("INSERT INTO t VALUES ('");
+		for (int i = 0; i < 20000; i++) {
+			values.append(i % 10);
+		}
+		values.append("')");
+
+		assertThat(splitter.split(values + ";\n" + values + ";"), is(statements(values.toString(), values.toString())));
+	}
+
+	private static List<String> statements(String... statements) {
+		return Arrays.asList(statements);
+	}
+}
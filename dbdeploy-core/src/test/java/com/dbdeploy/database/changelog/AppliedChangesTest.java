@@ -0,0 +1,44 @@
+package com.dbdeploy.database.changelog;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class AppliedChangesTest {
+	private final AppliedChanges appliedChanges = new AppliedChanges();
+
+	@Test
+	public void shouldKeepIdsAndChecksumsInOrder() throws Exception {
+		appliedChanges.add(1, "checksum1");
+		appliedChanges.add(3, "checksum3");
+
+		assertThat(appliedChanges.size(), is(2));
+		assertThat(appliedChanges.getId(1), is(3L));
+		assertThat(appliedChanges.getChecksum(1), is("checksum3"));
+	}
+
+	@Test
+	public void shouldSortChangesAddedOutOfOrder() throws Exception {
+		appliedChanges.add(3, "checksum3");
+		appliedChanges.add(1, "checksum1");
+		appliedChanges.add(2, "checksum2");
+
+		assertThat(appliedChanges.getIds(), is(Arrays.asList(1L, 2L, 3L)));
+		assertThat(appliedChanges.getChecksum(0), is("checksum1"));
+		assertThat(appliedChanges.getChecksum(2), is("checksum3"));
+	}
+
+	@Test
+	public void shouldGrowBeyondItsInitialCapacity() throws Exception {
+		for (int id = 1; id <= 10000; id++) {
+			appliedChanges.add(id, "checksum" + id);
+		}
+
+		assertThat(appliedChanges.size(), is(10000));
+		assertThat(appliedChanges.getId(9999), is(10000L));
+		assertThat(appliedChanges.getChecksum(9999), is("checksum10000"));
+	}
+}
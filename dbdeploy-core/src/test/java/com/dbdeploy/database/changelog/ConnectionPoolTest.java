@@ -0,0 +1,224 @@
+package com.dbdeploy.database.changelog;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+public class ConnectionPoolTest {
+	private final FakeDataSource dataSource = new FakeDataSource();
+	private final ConnectionPool pool = new ConnectionPool(dataSource, 2);
+
+	@Test
+	public void shouldReuseReturnedConnections() throws Exception {
+		pool.getConnection().close();
+		pool.getConnection().close();
+
+		assertThat(dataSource.opened.size(), is(1));
+		assertThat(pool.getOpenConnections(), is(1));
+		assertThat(pool.getIdleConnections(), is(1));
+	}
+
+	@Test
+	public void shouldRollBackAndRestoreAutoCommitWhenConnectionIsReturned() throws Exception {
+		Connection connection = pool.getConnection();
+		connection.setAutoCommit(false);
+		connection.close();
+
+		assertThat(dataSource.opened.get(0).rolledBack, is(true));
+		assertThat(dataSource.opened.get(0).autoCommit, is(true));
+	}
+
+	@Test
+	public void shouldNotAllowUseOfReturnedConnection() throws Exception {
+		Connection connection = pool.getConnection();
+		connection.close();
+
+		assertThat(connection.isClosed(), is(true));
+		try {
+			connection.createStatement();
+			fail("exception expected");
+		} catch (SQLException e) {
+			assertThat(e.getMessage(), is("the connection has been returned to the pool"));
+		}
+	}
+
+	@Test
+	public void shouldNotOpenMoreThanMaxSizeConnections() throws Exception {
+		pool.setMaxWaitMillis(100);
+		pool.getConnection();
+		pool.getConnection();
+
+		try {
+			pool.getConnection();
+			fail("exception expected");
+		} catch (SQLException e) {
+			assertThat(e.getMessage(), is("timed out waiting for one of 2 pooled connections"));
+		}
+		assertThat(dataSource.opened.size(), is(2));
+	}
+
+	@Test
+	public void shouldPassTheLoginTimeoutOnToTheDataSource() throws Exception {
+		pool.setLoginTimeout(5);
+
+		assertThat(dataSource.loginTimeout, is(5));
+		assertThat(pool.getLoginTimeout(), is(5));
+	}
+
+	@Test
+	public void shouldReplaceConnectionsThatFailValidation() throws Exception {
+		pool.setValidationQuery("SELECT 1");
+		pool.getConnection().close();
+		dataSource.opened.get(0).broken = true;
+
+		pool.getConnection();
+
+		assertThat(dataSource.opened.size(), is(2));
+		assertThat(dataSource.opened.get(0).closed, is(true));
+		assertThat(dataSource.opened.get(1).statements, is(0));
+	}
+
+	@Test
+	public void shouldCloseConnectionsIdleForLongerThanTheIdleTimeout() throws Exception {
+		pool.setIdleTimeoutMillis(-1);
+		pool.getConnection().close();
+
+		pool.getConnection();
+
+		assertThat(dataSource.opened.size(), is(2));
+		assertThat(dataSource.opened.get(0).closed, is(true));
+	}
+
+	@Test
+	public void shouldCloseConnectionsReturnedAfterThePoolHasBeenClosed() throws Exception {
+		Connection connection = pool.getConnection();
+		pool.close();
+		connection.close();
+
+		assertThat(dataSource.opened.get(0).closed, is(true));
+		assertThat(pool.getOpenConnections(), is(0));
+	}
+
+	@Test
+	public void shouldNotHoldThePoolWhileValidatingOrClosingConnections() throws Exception {
+		dataSource.lock = pool;
+		pool.setValidationQuery("SELECT 1");
+		pool.getConnection().close();
+		dataSource.opened.get(0).broken = true;
+
+		pool.getConnection().close();
+		pool.close();
+
+		assertThat(dataSource.opened.size(), is(2));
+		assertThat(dataSource.opened.get(0).usedWhileLocked, is(false));
+		assertThat(dataSource.opened.get(1).usedWhileLocked, is(false));
+		assertThat(dataSource.opened.get(1).closed, is(true));
+		assertThat(pool.getOpenConnections(), is(0));
+	}
+
+	private static class FakeConnection implements InvocationHandler {
+		private final Object lock;
+		private boolean usedWhileLocked;
+		private boolean autoCommit = true;
+		private boolean rolledBack;
+		private boolean closed;
+		private boolean broken;
+		private int statements;
+
+		public FakeConnection(Object lock) {
+			this.lock = lock;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			usedWhileLocked |= lock != null && Thread.holdsLock(lock);
+
+			if (name.equals("getAutoCommit")) {
+				return autoCommit;
+			} else if (name.equals("setAutoCommit")) {
+				autoCommit = (Boolean) args[0];
+			} else if (name.equals("rollback")) {
+				rolledBack = true;
+			} else if (name.equals("close")) {
+				closed = true;
+			} else if (name.equals("isClosed")) {
+				return closed;
+			} else if (name.equals("createStatement")) {
+				statements++;
+				return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+					new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							usedWhileLocked |= lock != null && Thread.holdsLock(lock);
+							if (method.getName().equals("execute") && broken) {
+								throw new SQLException("connection reset");
+							}
+							return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+						}
+					});
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(this);
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			}
+			return null;
+		}
+	}
+
+	private static class FakeDataSource implements DataSource {
+		private final List<FakeConnection> opened = new ArrayList<FakeConnection>();
+		private Object lock;
+		private int loginTimeout;
+
+		public Connection getConnection() {
+			FakeConnection connection = new FakeConnection(lock);
+			opened.add(connection);
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+				connection);
+		}
+
+		public Connection getConnection(String username, String password) {
+			return getConnection();
+		}
+
+		public PrintWriter getLogWriter() {
+			return null;
+		}
+
+		public void setLogWriter(PrintWriter out) {
+		}
+
+		public void setLoginTimeout(int seconds) {
+			loginTimeout = seconds;
+		}
+
+		public int getLoginTimeout() {
+			return loginTimeout;
+		}
+
+		public Logger getParentLogger() {
+			return null;
+		}
+
+		public <T> T unwrap(Class<T> iface) {
+			return null;
+		}
+
+		public boolean isWrapperFor(Class<?> iface) {
+			return false;
+		}
+	}
+}
@@ -2,9 +2,13 @@ package com.dbdeploy.database.changelog;
 
 import static org.hamcrest.Matchers.equalToIgnoringWhiteSpace;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -13,6 +17,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
@@ -20,9 +25,11 @@ import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import com.dbdeploy.exceptions.SchemaVersionTrackingException;
 import com.dbdeploy.scripts.ChangeScript;
 
 public class DatabaseSchemaVersionManagerTest {
@@ -76,6 +83,21 @@ public class DatabaseSchemaVersionManagerTest {
     	assertThat(changeLogEntries.get(2), isLike(new ChangeLogEntry(12L, timestampC, "userC", "descriptionC", "checksumC" )));
     }
 
+    @Test
+    public void shouldReadOnlyIdsAndChecksumsForPlanning() throws Exception {
+        when(queryExecuter.executeQuery(anyString(), anyInt())).thenReturn(expectedResultSet);
+        when(expectedResultSet.next()).thenReturn(true, true, false);
+        when(expectedResultSet.getLong(1)).thenReturn(5L, 9L);
+        when(expectedResultSet.getString(2)).thenReturn("checksumA", "checksumB");
+
+        final AppliedChanges appliedChanges = schemaVersionManager.findAppliedChanges();
+
+        verify(queryExecuter).executeQuery(startsWith("SELECT change_number, checksum FROM changelog "), anyInt());
+        assertThat(appliedChanges.size(), is(2));
+        assertThat(appliedChanges.getId(1), is(9L));
+        assertThat(appliedChanges.getChecksum(1), is("checksumB"));
+    }
+
 	@Test
     public void shouldUpdateChangelogTable() throws Exception {
         Date now = new Date();
@@ -92,6 +114,66 @@ public class DatabaseSchemaVersionManagerTest {
                 new Timestamp(now.getTime()), "DBUSER", script.getDescription(), script.getChecksum());
     }
 
+    @Test
+    public void shouldNotTakeScriptsWithProgressAsAppliedIfTheChangelogTableHasProgressColumns() throws Exception {
+        when(queryExecuter.executeQuery(anyString(), anyInt())).thenReturn(expectedResultSet);
+        when(queryExecuter.hasColumn("changelog", "completed_statements")).thenReturn(true);
+
+        schemaVersionManager.findAppliedChanges();
+        schemaVersionManager.findChangeLogEntries();
+
+        verify(queryExecuter).executeQuery(startsWith(
+                "SELECT change_number, checksum FROM changelog WHERE completed_statements IS NULL "), anyInt());
+        verify(queryExecuter).executeQuery(startsWith("SELECT * FROM changelog WHERE completed_statements IS NULL "));
+    }
+
+    @Test
+    public void shouldFailToRecordProgressIfTheChangelogTableHasNoProgressColumns() throws Exception {
+        schemaVersionManager.setRecordsProgress(true);
+
+        try {
+            schemaVersionManager.findAppliedChanges();
+            fail("exception expected");
+        } catch (SchemaVersionTrackingException e) {
+            assertThat(e.getMessage(), Matchers.startsWith("The change log table changelog has no " +
+                    "completed_statements and statements_digest columns"));
+        }
+    }
+
+    @Test
+    public void shouldReadTheProgressOfScriptsFromTheChangelogTable() throws Exception {
+        when(expectedResultSet.next()).thenReturn(true, false);
+        when(expectedResultSet.getLong(1)).thenReturn(5L);
+        when(expectedResultSet.getInt(2)).thenReturn(300);
+        when(expectedResultSet.getString(3)).thenReturn("digestA");
+        when(queryExecuter.hasColumn("changelog", "completed_statements")).thenReturn(true);
+
+        final Map<Long, ScriptProgress> progress = schemaVersionManager.findScriptProgress();
+
+        assertThat(progress.size(), is(1));
+        assertThat(progress.get(5L).getCompletedStatements(), is(300));
+        assertThat(progress.get(5L).getDigest(), is("digestA"));
+    }
+
+    @Test
+    public void shouldReplaceTheProgressOfAScript() throws Exception {
+        Date now = new Date();
+
+        when(queryExecuter.getDatabaseUsername()).thenReturn("DBUSER");
+        when(timeProvider.now()).thenReturn(now);
+
+        schemaVersionManager.recordScriptProgress(script, 300, "digestA");
+
+        InOrder inOrder = inOrder(queryExecuter);
+        inOrder.verify(queryExecuter).execute(
+                "DELETE FROM changelog WHERE change_number = ? AND completed_statements IS NOT NULL", script.getId());
+        inOrder.verify(queryExecuter).execute(
+                "INSERT INTO changelog (change_number, complete_dt, applied_by, description, checksum, " +
+                        "completed_statements, statements_digest) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                script.getId(), new Timestamp(now.getTime()), "DBUSER", script.getDescription(),
+                script.getChecksum(), 300, "digestA");
+    }
+
     @Test
     public void shouldGenerateSqlStringToDeleteChangelogTableAfterUndoScriptApplication() throws Exception {
         String sql = schemaVersionManager.getChangelogDeleteSql(script);
@@ -0,0 +1,229 @@
+package com.dbdeploy.database.changelog;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.dbdeploy.exceptions.StatementTimeoutException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryExecuterTest {
+	private final List<String> prepared = new ArrayList<String>();
+	private final List<String> closed = new ArrayList<String>();
+	private int statementsCreated;
+	private final List<Integer> queryTimeouts = new ArrayList<Integer>();
+	private final CountDownLatch cancelled = new CountDownLatch(1);
+	private QueryExecuter queryExecuter;
+
+	@Before
+	public void setUp() throws Exception {
+		queryExecuter = new QueryExecuter(proxy(Connection.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("getMetaData")) {
+					return proxy(DatabaseMetaData.class, returning("user"));
+				} else if (name.equals("prepareStatement")) {
+					prepared.add((String) args[0]);
+					return proxy(PreparedStatement.class, statement((String) args[0]));
+				} else if (name.equals("createStatement")) {
+					statementsCreated++;
+					return proxy(Statement.class, statement("statement"));
+				}
+				return null;
+			}
+		}));
+	}
+
+	@Test
+	public void shouldPrepareRepeatedStatementsOnlyOnce() throws Exception {
+		queryExecuter.execute("INSERT INTO changelog VALUES (?)", 1);
+		queryExecuter.execute("INSERT INTO changelog VALUES (?)", 2);
+		queryExecuter.execute("INSERT INTO changelog VALUES (?)", 3);
+
+		assertThat(prepared, is(Arrays.asList("INSERT INTO changelog VALUES (?)")));
+		assertThat(closed.isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldCloseLeastRecentlyUsedStatementsBeyondCacheSize() throws Exception {
+		queryExecuter.setStatementCacheSize(2);
+
+		queryExecuter.execute("a", 1);
+		queryExecuter.execute("b", 1);
+		queryExecuter.execute("a", 1);
+		queryExecuter.execute("c", 1);
+
+		assertThat(prepared, is(Arrays.asList("a", "b", "c")));
+		assertThat(closed, is(Arrays.asList("b")));
+	}
+
+	@Test
+	public void shouldCloseEveryPreparedStatementWithoutCache() throws Exception {
+		queryExecuter.setStatementCacheSize(0);
+
+		queryExecuter.execute("a", 1);
+		queryExecuter.execute("a", 1);
+
+		assertThat(prepared, is(Arrays.asList("a", "a")));
+		assertThat(closed, is(Arrays.asList("a", "a")));
+	}
+
+	@Test
+	public void shouldReuseOneStatementForStatementsWithoutParameters() throws Exception {
+		queryExecuter.execute("CREATE TABLE t (id INT)");
+		queryExecuter.execute("DROP TABLE t");
+		queryExecuter.executeBatch(Arrays.asList("INSERT INTO t VALUES (1)"));
+
+		assertThat(statementsCreated, is(1));
+	}
+
+	@Test
+	public void shouldCloseStatementsWhenClosed() throws Exception {
+		queryExecuter.execute("a", 1);
+		queryExecuter.execute("CREATE TABLE t (id INT)");
+
+		queryExecuter.close();
+
+		assertThat(closed, is(Arrays.asList("a", "statement")));
+	}
+
+	@Test
+	public void shouldCloseTheStatementOfAQueryWithItsResultSet() throws Exception {
+		ResultSet resultSet = queryExecuter.executeQuery("SELECT * FROM changelog", 100);
+		resultSet.next();
+		assertThat(closed.isEmpty(), is(true));
+
+		QueryExecuter.closeQuietly(resultSet);
+
+		assertThat(closed, is(Arrays.asList("result set", "statement")));
+	}
+
+	@Test
+	public void shouldPassTheTimeoutToTheDriverInSeconds() throws Exception {
+		queryExecuter.setTimeoutMillis(1500);
+		queryExecuter.execute("CREATE TABLE t (id INT)");
+		queryExecuter.setTimeoutMillis(0);
+		queryExecuter.execute("DROP TABLE t");
+
+		assertThat(queryTimeouts, is(Arrays.asList(2, 0)));
+	}
+
+	@Test
+	public void shouldCancelStatementsRunningLongerThanTheTimeout() throws Exception {
+		queryExecuter.setTimeoutMillis(50);
+
+		long start = System.currentTimeMillis();
+		try {
+			queryExecuter.execute("hang");
+			fail("expected a timeout");
+		} catch (StatementTimeoutException e) {
+			assertThat(e.getTimeoutMillis(), is(50L));
+			assertThat(e.getCause().getMessage(), is("cancelled"));
+		}
+		assertThat(System.currentTimeMillis() - start < 5000, is(true));
+	}
+
+	@Test
+	public void shouldLookUpColumnsInTheCaseOfUnquotedIdentifiers() throws Exception {
+		final List<String> lookedUp = new ArrayList<String>();
+		final DatabaseMetaData metaData = proxy(DatabaseMetaData.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("storesUpperCaseIdentifiers")) {
+					return true;
+				} else if (name.equals("getColumns")) {
+					lookedUp.add(args[1] + " " + args[2] + " " + args[3]);
+					return proxy(ResultSet.class, returning(args[3].equals("COMPLETED_STATEMENTS")));
+				} else if (method.getReturnType() == boolean.class) {
+					return false;
+				}
+				return null;
+			}
+		});
+		QueryExecuter executer = new QueryExecuter(proxy(Connection.class, returning(metaData)));
+
+		assertThat(executer.hasColumn("deploy.changelog", "completed_statements"), is(true));
+		assertThat(executer.hasColumn("changelog", "other"), is(false));
+		assertThat(lookedUp, is(Arrays.asList("DEPLOY CHANGELOG COMPLETED_STATEMENTS", "null CHANGELOG OTHER")));
+	}
+
+	@Test
+	public void shouldRecordTheConfiguredUserRatherThanTheUserOfTheConnection() throws Exception {
+		DataSource dataSource = proxy(DataSource.class, returning(proxy(Connection.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return method.getName().equals("getMetaData") ? proxy(DatabaseMetaData.class, returning("pool")) : null;
+			}
+		})));
+
+		assertThat(new QueryExecuter(dataSource, "deployer").getDatabaseUsername(), is("deployer"));
+		assertThat(new QueryExecuter(dataSource, null).getDatabaseUsername(), is("pool"));
+		assertThat(queryExecuter.getDatabaseUsername(), is("user"));
+	}
+
+	private InvocationHandler statement(final String sql) {
+		return new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+				if (method.getName().equals("execute") && args != null && "hang".equals(args[0])) {
+					if (!cancelled.await(10, TimeUnit.SECONDS)) {
+						fail("statement not cancelled");
+					}
+					throw new SQLException("cancelled");
+				} else if (method.getName().equals("cancel")) {
+					cancelled.countDown();
+				} else if (method.getName().equals("setQueryTimeout")) {
+					queryTimeouts.add((Integer) args[0]);
+				} else if (method.getName().equals("close")) {
+					closed.add(sql);
+				} else if (method.getName().equals("executeBatch")) {
+					return new int[0];
+				} else if (method.getName().equals("executeQuery")) {
+					return proxy(ResultSet.class, resultSet((Statement) proxy));
+				} else if (method.getReturnType() == boolean.class) {
+					return false;
+				} else if (method.getReturnType() == int.class) {
+					return 0;
+				}
+				return null;
+			}
+		};
+	}
+
+	private InvocationHandler resultSet(final Statement statement) {
+		final InvocationHandler resultSet = statement("result set");
+		return new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				return method.getName().equals("getStatement") ? statement : resultSet.invoke(proxy, method, args);
+			}
+		};
+	}
+
+	private static InvocationHandler returning(final Object value) {
+		return new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return value;
+			}
+		};
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(QueryExecuterTest.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+}
@@ -51,7 +51,9 @@ public class Database {
 				"  complete_dt TIMESTAMP NOT NULL, " +
 				"  applied_by VARCHAR(100) NOT NULL, " +
 				"  description VARCHAR(500) NOT NULL, " +
-				"  checksum VARCHAR(100)" +
+				"  checksum VARCHAR(100), " +
+				"  completed_statements INTEGER, " +
+				"  statements_digest VARCHAR(64)" +
 				")");
 
 		execute("ALTER TABLE " + changeLogTableName +
@@ -0,0 +1,129 @@
+package com.dbdeploy.integration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dbdeploy.DbDeploy;
+import com.dbdeploy.DeploymentListenerAdapter;
+import com.dbdeploy.DeploymentPhase;
+
+/**
+ * Applies a generated repository to an in-memory database and records how long scanning,
+ * reading the changelog, planning and applying took, on the first run and on a second run
+ * with nothing left to apply.
+ *
+ * It only runs with the system property dbdeploy.loadtest set to true, e.g.
+ * mvn test -Ddbdeploy.loadtest=true -Dtest=DirectToDbLoadTest. The size is set with the system
+ * properties dbdeploy.loadtest.scripts and dbdeploy.loadtest.statements; every run appends its
+ * timings to target/load-test-timings.csv, so runs of the same size can be compared.
+ */
+public class DirectToDbLoadTest {
+	private static final int SCRIPTS = Integer.getInteger("dbdeploy.loadtest.scripts", 1000);
+	private static final int STATEMENTS_PER_SCRIPT = Integer.getInteger("dbdeploy.loadtest.statements", 10);
+	private static final File TIMINGS_FILE = new File("target/load-test-timings.csv");
+
+	private File scriptDirectory;
+
+	@Before
+	public void generateRepository() throws IOException {
+		assumeTrue(Boolean.getBoolean("dbdeploy.loadtest"));
+
+		SyntheticRepository repository = new SyntheticRepository(SCRIPTS);
+		repository.setStatementsPerScript(STATEMENTS_PER_SCRIPT);
+		repository.setValueLength(40);
+		repository.setStatementMix(6, 3, 1);
+
+		scriptDirectory = File.createTempFile("dbdeploy-load-test", "");
+		scriptDirectory.delete();
+		repository.writeTo(scriptDirectory);
+	}
+
+	@After
+	public void deleteRepository() {
+		if (scriptDirectory != null) {
+			SyntheticRepository.delete(scriptDirectory);
+		}
+	}
+
+	@Test
+	public void shouldApplyALargeRepositoryAndFindNothingToApplyOnTheNextRun() throws Exception {
+		Database db = new Database("todb_load_test");
+		db.createSchemaVersionTable();
+
+		PhaseTimer firstRun = deploy(db);
+		assertThat(db.findChangeLogEntryIds().size(), is(SCRIPTS));
+		assertThat(firstRun.appliedScripts, is(SCRIPTS));
+
+		PhaseTimer secondRun = deploy(db);
+		assertThat(secondRun.appliedScripts, is(0));
+
+		record(firstRun, secondRun);
+	}
+
+	private PhaseTimer deploy(Database db) throws Exception {
+		PhaseTimer timer = new PhaseTimer();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(scriptDirectory);
+		dbDeploy.addListener(timer);
+		dbDeploy.go();
+
+		return timer;
+	}
+
+	private void record(PhaseTimer firstRun, PhaseTimer secondRun) throws IOException {
+		boolean header = !TIMINGS_FILE.exists();
+		TIMINGS_FILE.getParentFile().mkdirs();
+
+		PrintWriter writer = new PrintWriter(new FileWriter(TIMINGS_FILE, true));
+		try {
+			if (header) {
+				writer.println("date,scripts,statements,scan,changelog,plan,apply,rescan,rereadchangelog,replan");
+			}
+			writer.println(String.format("%tFT%<tT,%d,%d,%d,%d,%d,%d,%d,%d,%d", new Date(), SCRIPTS,
+				STATEMENTS_PER_SCRIPT, firstRun.millis(DeploymentPhase.scan), firstRun.millis(DeploymentPhase.changelog),
+				firstRun.millis(DeploymentPhase.plan), firstRun.millis(DeploymentPhase.apply),
+				secondRun.millis(DeploymentPhase.scan), secondRun.millis(DeploymentPhase.changelog),
+				secondRun.millis(DeploymentPhase.plan)));
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * records the time of each phase of a run
+	 */
+	private static class PhaseTimer extends DeploymentListenerAdapter {
+		private final Map<DeploymentPhase, Long> nanos = new EnumMap<DeploymentPhase, Long>(DeploymentPhase.class);
+		private int appliedScripts;
+
+		@Override
+		public synchronized void phaseFinished(DeploymentPhase phase, long nanos) {
+			this.nanos.put(phase, nanos);
+		}
+
+		@Override
+		public synchronized void runFinished(int appliedScripts, Throwable failure) {
+			this.appliedScripts = appliedScripts;
+		}
+
+		public synchronized long millis(DeploymentPhase phase) {
+			Long phaseNanos = nanos.get(phase);
+			return phaseNanos == null ? 0 : phaseNanos / 1000000;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.dbdeploy.integration;
+
+import com.dbdeploy.scripts.ChangeScript;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Generates change scripts for tests and benchmarks that need many of them.
+ *
+ * Script n creates table synthetic_n and runs a mix of inserts, updates and deletes on it; its
+ * undo section drops the table again. The content only depends on the id and the settings, so
+ * the same repository is generated every time.
+ */
+public class SyntheticRepository {
+	private final int scripts;
+	private int statementsPerScript = 5;
+	private int valueLength = 10;
+	private int inserts = 3;
+	private int updates = 1;
+	private int deletes = 0;
+	private boolean undoSections = true;
+
+	public SyntheticRepository(int scripts) {
+		this.scripts = scripts;
+	}
+
+	/**
+	 * statements in the do section of each script, including the CREATE TABLE, default 5
+	 */
+	public void setStatementsPerScript(int statementsPerScript) {
+		this.statementsPerScript = statementsPerScript;
+	}
+
+	/**
+	 * length of the text inserted into each row, to vary the size of the scripts, default 10
+	 */
+	public void setValueLength(int valueLength) {
+		this.valueLength = valueLength;
+	}
+
+	/**
+	 * relative frequency of inserts, updates and deletes after the CREATE TABLE, default 3:1:0
+	 */
+	public void setStatementMix(int inserts, int updates, int deletes) {
+		if (inserts < 0 || updates < 0 || deletes < 0 || inserts + updates + deletes == 0) {
+			throw new IllegalArgumentException("the statement mix needs at least one kind of statement");
+		}
+		this.inserts = inserts;
+		this.updates = updates;
+		this.deletes = deletes;
+	}
+
+	/**
+	 * whether the scripts have an undo section, default true
+	 */
+	public void setUndoSections(boolean undoSections) {
+		this.undoSections = undoSections;
+	}
+
+	public int getScripts() {
+		return scripts;
+	}
+
+	public List<ChangeScript> createChangeScripts() {
+		List<ChangeScript> changeScripts = new ArrayList<ChangeScript>(scripts);
+		for (long id = 1; id <= scripts; id++) {
+			changeScripts.add(new ChangeScript(id, fileName(id), doContent(id), undoContent(id)));
+		}
+		return changeScripts;
+	}
+
+	/**
+	 * writes one file per script into the directory, which is created if necessary
+	 */
+	public File writeTo(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+
+		for (long id = 1; id <= scripts; id++) {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(new File(directory, fileName(id))), "UTF-8"));
+			try {
+				writer.write(doContent(id));
+				if (undoSections) {
+					writer.write("\n--//@UNDO\n");
+					writer.write(undoContent(id));
+				}
+			} finally {
+				writer.close();
+			}
+		}
+
+		return directory;
+	}
+
+	public String fileName(long id) {
+		return String.format("%06d_synthetic_change.sql", id);
+	}
+
+	public String doContent(long id) {
+		Random random = new Random(id);
+		String table = table(id);
+
+		StringBuilder content = new StringBuilder();
+		content.append("-- synthetic change script ").append(id).append('\n');
+		content.append("CREATE TABLE ").append(table).append(" (\n")
+			.append("  id INTEGER NOT NULL,\n")
+			.append("  name VARCHAR(").append(valueLength).append("),\n")
+			.append("  amount DECIMAL(10, 2)\n")
+			.append(");\n");
+
+		for (int i = 1; i < statementsPerScript; i++) {
+			int kind = random.nextInt(inserts + updates + deletes);
+
+			if (kind < inserts) {
+				content.append("INSERT INTO ").append(table).append(" (id, name, amount) VALUES (")
+					.append(i).append(", '").append(text(random)).append("', ")
+					.append(random.nextInt(10000)).append(".").append(random.nextInt(10)).append(");\n");
+			} else if (kind < inserts + updates) {
+				content.append("UPDATE ").append(table).append(" SET amount = amount * 2 WHERE id < ")
+					.append(random.nextInt(statementsPerScript)).append(";\n");
+			} else {
+				content.append("DELETE FROM ").append(table).append(" WHERE id = ")
+					.append(random.nextInt(statementsPerScript)).append(";\n");
+			}
+		}
+
+		return content.toString();
+	}
+
+	/**
+	 * empty if the scripts have no undo section
+	 */
+	public String undoContent(long id) {
+		return undoSections ? "DROP TABLE " + table(id) + ";\n" : "";
+	}
+
+	private String text(Random random) {
+		char[] text = new char[valueLength];
+		for (int i = 0; i < valueLength; i++) {
+			text[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(text);
+	}
+
+	private static String table(long id) {
+		return "synthetic_" + id;
+	}
+
+	public static void delete(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+}
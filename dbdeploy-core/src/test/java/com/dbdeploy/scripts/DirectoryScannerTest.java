@@ -0,0 +1,89 @@
+package com.dbdeploy.scripts;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DirectoryScannerTest {
+	private static final int NUMBER_OF_SCRIPTS = 50;
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("directoryScannerTest", "");
+		directory.delete();
+		directory.mkdir();
+
+		for (int i = 1; i <= NUMBER_OF_SCRIPTS; i++) {
+			writeFile(i + "_script.sql", "INSERT INTO test VALUES (" + i + ");\n--//@UNDO\nDELETE FROM test WHERE id = " + i + ";\n");
+		}
+		writeFile("readme.txt", "not a change script");
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void shouldIgnoreFilesWithoutChangeScriptNumber() throws Exception {
+		final List<ChangeScript> scripts = new DirectoryScanner("UTF-8").getChangeScriptsForDirectory(directory);
+
+		assertThat(scripts.size(), is(NUMBER_OF_SCRIPTS));
+	}
+
+	@Test
+	public void shouldReadTheSameScriptsInTheSameOrderWhenScanningInParallel() throws Exception {
+		final List<ChangeScript> expected = new DirectoryScanner("UTF-8").getChangeScriptsForDirectory(directory);
+
+		final DirectoryScanner parallelScanner = new DirectoryScanner("UTF-8");
+		parallelScanner.setParallelism(4);
+		final List<ChangeScript> actual = parallelScanner.getChangeScriptsForDirectory(directory);
+
+		assertThat(actual.size(), is(expected.size()));
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(actual.get(i).getId(), is(expected.get(i).getId()));
+			assertThat(actual.get(i).getContent(), is(expected.get(i).getContent()));
+			assertThat(actual.get(i).getUndoContent(), is(expected.get(i).getUndoContent()));
+			assertThat(actual.get(i).getChecksum(), is(expected.get(i).getChecksum()));
+		}
+	}
+
+	@Test
+	public void shouldComputeTheSameChecksumsWhenLoadingLazily() throws Exception {
+		final List<ChangeScript> expected = new DirectoryScanner("UTF-8").getChangeScriptsForDirectory(directory);
+
+		final DirectoryScanner lazyScanner = new DirectoryScanner("UTF-8");
+		lazyScanner.setLazyLoading(true);
+		lazyScanner.setParallelism(4);
+		final List<ChangeScript> actual = lazyScanner.getChangeScriptsForDirectory(directory);
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(actual.get(i).getChecksum(), is(expected.get(i).getChecksum()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAcceptParallelismLessThanOne() {
+		new DirectoryScanner("UTF-8").setParallelism(0);
+	}
+
+	private void writeFile(final String name, final String content) throws IOException {
+		final BufferedWriter out = new BufferedWriter(new FileWriter(new File(directory, name)));
+		out.write(content);
+		out.close();
+	}
+}
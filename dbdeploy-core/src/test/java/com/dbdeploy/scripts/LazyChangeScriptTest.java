@@ -0,0 +1,150 @@
+package com.dbdeploy.scripts;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Test;
+
+import com.dbdeploy.ChecksumValidationException;
+
+public class LazyChangeScriptTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowExceptionWhenNoFileGiven() {
+		new LazyChangeScript(1, null, "UTF-8");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowExceptionWhenNoEncodingGiven() throws IOException {
+		new LazyChangeScript(1, createTemporaryFileWithContent("test"), null);
+	}
+
+	@Test
+	public void shouldReturnSameChecksumAsAFullyLoadedChangeScript() throws Exception {
+		final File file = createTemporaryFileWithContent(
+				"Hello\n" +
+				"There!\n" +
+				"--//@UNDO  \n" +
+				"This is after the undo marker!\n");
+
+		final LazyChangeScript lazyChangeScript = new LazyChangeScript(5, file, "UTF-8");
+
+		assertThat(lazyChangeScript.getChecksum(), is(new ChangeScript(5, file, "UTF-8").getChecksum()));
+	}
+
+	@Test
+	public void shouldReturnValidChecksumOfFile() throws Exception {
+		final File file = createTemporaryFileWithContent("Hello\nThere!\n");
+
+		final LazyChangeScript changeScript = new LazyChangeScript(5, file, "UTF-8");
+
+		assertThat(changeScript.getChecksum(), is("88749cf876ecae2eaea44e484e2e03d3d81debb7d91e1d0f6aff6e9b7b07e56e"));
+	}
+
+	@Test
+	public void shouldReadContentsOfFileOnDemand() throws Exception {
+		final File file = createTemporaryFileWithContent(
+				"Hello\n" +
+				"There!\n" +
+				"--//@UNDO\n" +
+				"This is after the undo marker!\n");
+
+		final LazyChangeScript changeScript = new LazyChangeScript(5, file, "UTF-8");
+
+		assertThat(changeScript.getContent(), is("Hello\nThere!\n"));
+		assertThat(changeScript.getUndoContent(), is("This is after the undo marker!\n"));
+	}
+
+	@Test(expected = ChecksumValidationException.class)
+	public void shouldThrowExceptionWhenFileHasBeenChangedAfterScanning() throws Exception {
+		final File file = createTemporaryFileWithContent("Hello\nThere!\n");
+
+		final LazyChangeScript changeScript = new LazyChangeScript(5, file, "UTF-8");
+		writeContent(file, "Hello\nWorld!\n");
+
+		changeScript.getContent();
+	}
+
+	@Test
+	public void shouldReadContentsAgainAfterTheyHaveBeenReleased() throws Exception {
+		final File file = createTemporaryFileWithContent("Hello\n--//@UNDO\nundo\n");
+
+		final LazyChangeScript changeScript = new LazyChangeScript(5, file, "UTF-8");
+		assertThat(changeScript.getContent(), is("Hello\n"));
+
+		changeScript.releaseContent();
+
+		assertThat(changeScript.getContent(), is("Hello\n"));
+		assertThat(changeScript.getUndoContent(), is("undo\n"));
+	}
+
+	@Test
+	public void shouldStreamContentsOfFile() throws Exception {
+		final File file = createTemporaryFileWithContent(
+				"Hello\r\n" +
+				"There!\r\n" +
+				"--//@UNDO\r\n" +
+				"This is after the undo marker!\r\n");
+
+		final LazyChangeScript changeScript = new LazyChangeScript(5, file, "UTF-8");
+
+		assertThat(readFully(changeScript.openContent()), is("Hello\nThere!\n"));
+	}
+
+	@Test(expected = ChecksumValidationException.class)
+	public void shouldThrowExceptionAtEndOfStreamWhenFileHasBeenChangedAfterScanning() throws Exception {
+		final File file = createTemporaryFileWithContent("Hello\nThere!\n--//@UNDO\nundo\n");
+
+		final LazyChangeScript changeScript = new LazyChangeScript(5, file, "UTF-8");
+		writeContent(file, "Hello\nThere!\n--//@UNDO\nmodified undo\n");
+
+		readFully(changeScript.openContent());
+	}
+
+	@Test
+	public void shouldUseFileNameAsDescription() throws Exception {
+		final File file = createTemporaryFileWithContent("SELECT 1 FROM dual;");
+
+		final LazyChangeScript changeScript = new LazyChangeScript(5, file, "UTF-8");
+
+		assertThat(changeScript.toString(), equalTo("#5: " + file.getName()));
+	}
+
+	private String readFully(final Reader reader) throws IOException {
+		final StringBuilder content = new StringBuilder();
+		final char[] buffer = new char[3];
+		int length;
+
+		try {
+			while ((length = reader.read(buffer)) != -1) {
+				content.append(buffer, 0, length);
+			}
+		} finally {
+			reader.close();
+		}
+
+		return content.toString();
+	}
+
+	private File createTemporaryFileWithContent(final String content) throws IOException {
+		final File file = File.createTempFile("lazyChangeScriptTest", ".sql");
+		file.deleteOnExit();
+
+		writeContent(file, content);
+
+		return file;
+	}
+
+	private void writeContent(final File file, final String content) throws IOException {
+		final BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		out.write(content);
+		out.close();
+	}
+}
@@ -0,0 +1,99 @@
+package com.dbdeploy.scripts;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.Test;
+
+import com.dbdeploy.exceptions.DbDeployException;
+
+public class ScriptFileReaderTest {
+	private final ScriptFileReader reader = new ScriptFileReader("UTF-8");
+
+	@Test
+	public void shouldSplitContentAtUndoMarker() throws Exception {
+		final ScriptFileReader.Content content = reader.read(createTemporaryFileWithContent(
+				"Hello\n" +
+				"There!\n" +
+				"  --//@UNDO  \n" +
+				"This is after the undo marker!\n"));
+
+		assertThat(content.getDoContent(), is("Hello\nThere!\n"));
+		assertThat(content.getUndoContent(), is("This is after the undo marker!\n"));
+	}
+
+	@Test
+	public void shouldReturnEmptyUndoContentWithoutUndoMarker() throws Exception {
+		final ScriptFileReader.Content content = reader.read(createTemporaryFileWithContent("SELECT 1 FROM dual;"));
+
+		assertThat(content.getDoContent(), is("SELECT 1 FROM dual;\n"));
+		assertThat(content.getUndoContent(), is(""));
+	}
+
+	@Test
+	public void shouldNormaliseAllLineEndings() throws Exception {
+		final ScriptFileReader.Content content = reader.read(createTemporaryFileWithContent(
+				"one\r\ntwo\rthree\n\nfour\r\n--//@UNDO\r\nfive\r"));
+
+		assertThat(content.getDoContent(), is("one\ntwo\nthree\n\nfour\n"));
+		assertThat(content.getUndoContent(), is("five\n"));
+	}
+
+	@Test
+	public void shouldIgnoreFurtherUndoMarkers() throws Exception {
+		final ScriptFileReader.Content content = reader.read(createTemporaryFileWithContent(
+				"do\n--//@UNDO\nundo1\n--//@UNDO\nundo2\n"));
+
+		assertThat(content.getDoContent(), is("do\n"));
+		assertThat(content.getUndoContent(), is("undo1\nundo2\n"));
+	}
+
+	@Test
+	public void shouldDecodeCharactersSpanningBufferBoundaries() throws Exception {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			expected.append("INSERT INTO t VALUES ('\u00e4\u00f6\u00fc \u20ac ").append(i).append("');\r\n");
+		}
+
+		final ScriptFileReader.Content content = reader.read(createTemporaryFileWithContent(expected.toString()));
+
+		assertThat(content.getDoContent(), is(expected.toString().replace("\r\n", "\n")));
+	}
+
+	@Test
+	public void shouldBeReusableForSeveralFiles() throws Exception {
+		reader.read(createTemporaryFileWithContent("first\n--//@UNDO\nundo first"));
+
+		final ScriptFileReader.Content content = reader.read(createTemporaryFileWithContent("second"));
+
+		assertThat(content.getDoContent(), is("second\n"));
+		assertThat(content.getUndoContent(), is(""));
+	}
+
+	@Test(expected = DbDeployException.class)
+	public void shouldThrowExceptionForUnknownEncoding() {
+		new ScriptFileReader("no-such-encoding");
+	}
+
+	@Test(expected = DbDeployException.class)
+	public void shouldThrowExceptionForMissingFile() {
+		reader.read(new File("does-not-exist.sql"));
+	}
+
+	private File createTemporaryFileWithContent(final String content) throws IOException {
+		final File file = File.createTempFile("scriptFileReaderTest", ".sql");
+		file.deleteOnExit();
+
+		final Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		out.write(content);
+		out.close();
+
+		return file;
+	}
+}
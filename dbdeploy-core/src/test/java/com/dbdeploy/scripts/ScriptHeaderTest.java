@@ -0,0 +1,54 @@
+package com.dbdeploy.scripts;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ScriptHeaderTest {
+
+	@Test
+	public void shouldReadGroupAndDependenciesFromLeadingComments() {
+		ScriptHeader header = read("-- index on the orders schema\n"
+			+ "--//@GROUP orders\n"
+			+ "\n"
+			+ "--//@DEPENDS 12, 15 17\n"
+			+ "CREATE INDEX ix_orders ON orders (customer_id);\n");
+
+		assertThat(header.isDeclared(), is(true));
+		assertThat(header.getGroup(), is("orders"));
+		assertThat(header.getDependencies(), is(Arrays.asList(12L, 15L, 17L)));
+	}
+
+	@Test
+	public void shouldIgnoreMarkersAfterTheFirstStatement() {
+		ScriptHeader header = read("CREATE TABLE t (id INT);\n--//@GROUP orders\n");
+
+		assertThat(header, is(ScriptHeader.NONE));
+		assertThat(header.isDeclared(), is(false));
+	}
+
+	@Test
+	public void shouldAllowDependenciesWithoutGroup() {
+		ScriptHeader header = read("--//@DEPENDS 3\nSELECT 1;\n");
+
+		assertThat(header.isDeclared(), is(true));
+		assertThat(header.getGroup(), is(nullValue()));
+		assertThat(header.getDependencies(), is(Arrays.asList(3L)));
+	}
+
+	@Test
+	public void shouldBeReadFromTheContentOfAChangeScript() {
+		ChangeScript script = new ChangeScript(5, "5_index.sql", "--//@GROUP customers\nSELECT 1;\n", "");
+
+		assertThat(script.readHeader().getGroup(), is("customers"));
+	}
+
+	private ScriptHeader read(String content) {
+		return ScriptHeader.read(new StringReader(content));
+	}
+}
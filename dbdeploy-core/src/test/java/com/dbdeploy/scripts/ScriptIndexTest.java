@@ -0,0 +1,128 @@
+package com.dbdeploy.scripts;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dbdeploy.DeploymentListenerAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScriptIndexTest {
+	private File directory;
+	private File script;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("scriptIndexTest", "");
+		directory.delete();
+		directory.mkdir();
+
+		script = writeScript("1_script.sql", "SELECT 1;\n");
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void shouldReturnChecksumOfUnmodifiedFileFromSavedIndex() throws Exception {
+		saveIndexWith(script, 1, "checksum");
+
+		assertThat(new ScriptIndex(directory, "UTF-8").getChecksum(script, 1), is("checksum"));
+	}
+
+	@Test
+	public void shouldNotReturnChecksumOfModifiedFile() throws Exception {
+		saveIndexWith(script, 1, "checksum");
+		writeScript("1_script.sql", "SELECT 1 FROM dual;\n");
+
+		assertThat(new ScriptIndex(directory, "UTF-8").getChecksum(script, 1), is(nullValue()));
+	}
+
+	@Test
+	public void shouldNotReturnChecksumOfFileModifiedJustBeforeTheIndexWasWritten() throws Exception {
+		script.setLastModified(System.currentTimeMillis());
+		saveIndexWith(script, 1, "checksum");
+
+		assertThat(new ScriptIndex(directory, "UTF-8").getChecksum(script, 1), is(nullValue()));
+	}
+
+	@Test
+	public void shouldIgnoreIndexWrittenForAnotherEncoding() throws Exception {
+		saveIndexWith(script, 1, "checksum");
+
+		assertThat(new ScriptIndex(directory, "ISO-8859-1").getChecksum(script, 1), is(nullValue()));
+	}
+
+	@Test
+	public void shouldIgnoreCorruptIndex() throws Exception {
+		saveIndexWith(script, 1, "checksum");
+
+		final RandomAccessFile indexFile = new RandomAccessFile(new File(directory, ScriptIndex.FILENAME), "rw");
+		indexFile.seek(20);
+		indexFile.write(0xFF);
+		indexFile.close();
+
+		final List<String> warnings = new ArrayList<String>();
+		final ScriptIndex index = new ScriptIndex(directory, "UTF-8", new DeploymentListenerAdapter() {
+			@Override
+			public void info(String message) {
+				warnings.add(message);
+			}
+		});
+
+		assertThat(index.getChecksum(script, 1), is(nullValue()));
+		assertThat(warnings.size(), is(1));
+		assertThat(warnings.get(0), startsWith("Ignoring unreadable script index"));
+	}
+
+	@Test
+	public void shouldDropFilesThatWereNotLookedUpWhenSaving() throws Exception {
+		saveIndexWith(script, 1, "checksum");
+
+		new ScriptIndex(directory, "UTF-8").save();
+
+		assertThat(new ScriptIndex(directory, "UTF-8").getChecksum(script, 1), is(nullValue()));
+	}
+
+	@Test
+	public void directoryScannerShouldUseChecksumsFromIndex() throws Exception {
+		final DirectoryScanner scanner = new DirectoryScanner("UTF-8");
+		scanner.setUseScriptIndex(true);
+
+		final String checksum = scanner.getChangeScriptsForDirectory(directory).get(0).getChecksum();
+
+		assertThat(checksum, is(new ChangeScript(1, script, "UTF-8").getChecksum()));
+		assertThat(new ScriptIndex(directory, "UTF-8").getChecksum(script, 1), is(checksum));
+	}
+
+	private void saveIndexWith(final File file, final long id, final String checksum) {
+		final ScriptIndex index = new ScriptIndex(directory, "UTF-8");
+		index.put(file, file.length(), file.lastModified(), id, checksum);
+		index.save();
+	}
+
+	private File writeScript(final String name, final String content) throws IOException {
+		final File file = new File(directory, name);
+		final BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		out.write(content);
+		out.close();
+		file.setLastModified(System.currentTimeMillis() - 60000);
+		return file;
+	}
+}
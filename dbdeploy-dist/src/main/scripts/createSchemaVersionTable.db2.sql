@@ -4,7 +4,9 @@ CREATE TABLE changelog (
   complete_dt TIMESTAMP NOT NULL,
   applied_by VARCHAR(100) NOT NULL,
   description VARCHAR(500) NOT NULL,
-  checksum VARCHAR(100) NOT NULL
+  checksum VARCHAR(100) NOT NULL,
+  completed_statements INTEGER,
+  statements_digest VARCHAR(64)
 );
 
 ALTER TABLE changelog ADD CONSTRAINT Pkchangelog PRIMARY KEY (change_number);
@@ -3,7 +3,9 @@ CREATE TABLE changelog (
   complete_dt TIMESTAMP NOT NULL,
   applied_by VARCHAR2(100) NOT NULL,
   description VARCHAR2(500) NOT NULL,
-  checksum VARCHAR2(100) NOT NULL
+  checksum VARCHAR2(100) NOT NULL,
+  completed_statements NUMBER(10,0),
+  statements_digest VARCHAR2(64)
 );
 
 ALTER TABLE changelog ADD CONSTRAINT Pkchangelog PRIMARY KEY (change_number)
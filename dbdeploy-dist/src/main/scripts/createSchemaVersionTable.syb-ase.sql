@@ -3,7 +3,9 @@ CREATE TABLE changelog (
   complete_dt DATETIME NOT NULL,
   applied_by VARCHAR(100) NOT NULL,
   description VARCHAR(500) NOT NULL,
-  checksum VARCHAR(100) NOT NULL
+  checksum VARCHAR(100) NOT NULL,
+  completed_statements INT NULL,
+  statements_digest VARCHAR(64) NULL
 )
 GO
 
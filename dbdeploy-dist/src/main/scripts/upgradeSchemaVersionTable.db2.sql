@@ -0,0 +1,3 @@
+ALTER TABLE changelog ADD COLUMN completed_statements INTEGER;
+
+ALTER TABLE changelog ADD COLUMN statements_digest VARCHAR(64);
@@ -0,0 +1,4 @@
+ALTER TABLE changelog
+  ADD COLUMN completed_statements INT,
+  ADD COLUMN statements_digest VARCHAR(64)
+;
@@ -0,0 +1,5 @@
+ALTER TABLE changelog ADD (
+  completed_statements NUMBER(10,0),
+  statements_digest VARCHAR2(64)
+)
+;
@@ -0,0 +1,4 @@
+ALTER TABLE changelog ADD
+  completed_statements INT NULL,
+  statements_digest VARCHAR(64) NULL
+GO
@@ -18,6 +18,7 @@ package com.dbdeploy.mojo;
 import com.dbdeploy.DbDeploy;
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.database.LineEnding;
+import com.dbdeploy.database.TransactionMode;
 import org.apache.maven.plugin.AbstractMojo;
 
 import java.io.File;
@@ -94,7 +95,8 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 
     /**
      * Either normal: split on delimiter wherever it occurs or row  only split
-     * on delimiter if it features on a line by itself. Default normal.
+     * on delimiter if it features on a line by itself, or sql: split on delimiter
+     * outside of literals, comments and PL/SQL blocks. Default normal.
      *
      * @parameter expression="${dbdeploy.delimiterType}"
      */
@@ -116,6 +118,165 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
      */
     protected Long lastChangeToApply;
 
+    /**
+     * Only compute checksums while scanning the script directory and read the
+     * content of the change scripts that are going to be applied. Default false.
+     *
+     * @parameter expression="${dbdeploy.lazyLoading}" default-value="false"
+     */
+    protected boolean lazyLoading;
+
+    /**
+     * Number of threads used to read and checksum the change scripts. Default 1.
+     *
+     * @parameter expression="${dbdeploy.scanParallelism}"
+     */
+    protected Integer scanParallelism;
+
+    /**
+     * Cache the checksums of the change scripts in a .dbdeploy-index file in the
+     * script directory, so only new or modified scripts are read. Implies lazy
+     * loading. Default false.
+     *
+     * @parameter expression="${dbdeploy.scriptIndex}" default-value="false"
+     */
+    protected boolean scriptIndex;
+
+    /**
+     * Number of consecutive INSERT, UPDATE, DELETE or MERGE statements sent to
+     * the database as one JDBC batch when applying directly. Default 1.
+     *
+     * @parameter expression="${dbdeploy.batchSize}"
+     */
+    protected Integer batchSize;
+
+    /**
+     * Render the output file one change script at a time and release its content
+     * afterwards, for templates that consist of the list of scripts only, like the
+     * built-in ones. Together with an undo output file, both files are written
+     * in a single pass. Default false.
+     *
+     * @parameter expression="${dbdeploy.streamOutput}" default-value="false"
+     */
+    protected boolean streamOutput;
+
+    /**
+     * Read and split the next change scripts on a separate thread while the
+     * current one is applied directly, e.g. for scripts on a network file
+     * system. Default false.
+     *
+     * @parameter expression="${dbdeploy.readAhead}" default-value="false"
+     */
+    protected boolean readAhead;
+
+    /**
+     * Transaction boundary when applying directly: statement (autocommit),
+     * script (one transaction per scriptsPerTransaction change scripts) or
+     * run (one transaction for all change scripts). Default script.
+     *
+     * @parameter expression="${dbdeploy.transactionMode}"
+     */
+    protected String transactionMode;
+
+    /**
+     * Number of change scripts committed together in transaction mode script. Default 1.
+     *
+     * @parameter expression="${dbdeploy.scriptsPerTransaction}"
+     */
+    protected Integer scriptsPerTransaction;
+
+    /**
+     * File listing the databases to apply the change scripts to, one per line
+     * as url [userid [password]]. Replaces url; userid and password are used
+     * for lines that only contain the url.
+     *
+     * @parameter expression="${dbdeploy.targetsfile}"
+     */
+    protected File targetsfile;
+
+    /**
+     * Number of databases from the targets file deployed to concurrently. Default 4.
+     *
+     * @parameter expression="${dbdeploy.targetParallelism}"
+     */
+    protected Integer targetParallelism;
+
+    /**
+     * Number of connections used to apply change scripts with a --//@GROUP or
+     * --//@DEPENDS header concurrently. Scripts without header are always
+     * applied on their own. Default 1.
+     *
+     * @parameter expression="${dbdeploy.applyParallelism}"
+     */
+    protected Integer applyParallelism;
+
+    /**
+     * Number of the slowest statements and change scripts reported at the
+     * end of the run. Default 0.
+     *
+     * @parameter expression="${dbdeploy.slowStatements}"
+     */
+    protected Integer slowStatements;
+
+    /**
+     * File to write the wall time and rows affected of every statement and
+     * change script applied to, as JSON lines.
+     *
+     * @parameter expression="${dbdeploy.timingsfile}"
+     */
+    protected File timingsfile;
+
+    /**
+     * Print the progress on a separate thread, so a slow console does not
+     * hold up applying the change scripts. Default false.
+     *
+     * @parameter expression="${dbdeploy.asyncLogging}" default-value="false"
+     */
+    protected boolean asyncLogging;
+
+    /**
+     * Seconds a statement may run when applying directly before it is
+     * cancelled. Default 0, no limit.
+     *
+     * @parameter expression="${dbdeploy.statementTimeout}"
+     */
+    protected Integer statementTimeout;
+
+    /**
+     * Seconds the statements of a change script may take together when
+     * applying directly. Default 0, no limit.
+     *
+     * @parameter expression="${dbdeploy.scriptTimeout}"
+     */
+    protected Integer scriptTimeout;
+
+    /**
+     * Number of times a transaction is applied again after a deadlock, lock
+     * wait timeout or other transient failure when applying directly. Default 0.
+     *
+     * @parameter expression="${dbdeploy.retries}"
+     */
+    protected Integer retries;
+
+    /**
+     * Number of statements of a change script after which a savepoint is set
+     * when applying directly; transient failures are retried from the last
+     * savepoint. Default 0, none.
+     *
+     * @parameter expression="${dbdeploy.savepointInterval}"
+     */
+    protected Integer savepointInterval;
+
+    /**
+     * Commit failed change scripts up to their last savepoint and record how
+     * far they got in the changelog table, so the next run continues there.
+     * Requires savepointInterval and one change script per transaction.
+     * Default false.
+     *
+     * @parameter expression="${dbdeploy.resumable}" default-value="false"
+     */
+    protected boolean resumable;
+
     protected DbDeploy getConfiguredDbDeploy() {
         DbDeploy dbDeploy = new DbDeploy();
         dbDeploy.setScriptdirectory(scriptdirectory);
@@ -148,6 +309,64 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 		    dbDeploy.setLineEnding(LineEnding.valueOf(lineEnding));
 	    }
 
+        dbDeploy.setLazyLoading(lazyLoading);
+
+        if (scanParallelism != null) {
+            dbDeploy.setScanParallelism(scanParallelism);
+        }
+
+        dbDeploy.setScriptIndex(scriptIndex);
+
+        if (batchSize != null) {
+            dbDeploy.setBatchSize(batchSize);
+        }
+
+        dbDeploy.setStreamOutput(streamOutput);
+        dbDeploy.setReadAhead(readAhead);
+
+        if (transactionMode != null) {
+            dbDeploy.setTransactionMode(TransactionMode.valueOf(transactionMode));
+        }
+
+        if (scriptsPerTransaction != null) {
+            dbDeploy.setScriptsPerTransaction(scriptsPerTransaction);
+        }
+
+        dbDeploy.setTargetsfile(targetsfile);
+
+        if (targetParallelism != null) {
+            dbDeploy.setTargetParallelism(targetParallelism);
+        }
+
+        if (applyParallelism != null) {
+            dbDeploy.setApplyParallelism(applyParallelism);
+        }
+
+        if (slowStatements != null) {
+            dbDeploy.setSlowStatements(slowStatements);
+        }
+
+        dbDeploy.setTimingsfile(timingsfile);
+        dbDeploy.setAsyncLogging(asyncLogging);
+
+        if (statementTimeout != null) {
+            dbDeploy.setStatementTimeout(statementTimeout);
+        }
+
+        if (scriptTimeout != null) {
+            dbDeploy.setScriptTimeout(scriptTimeout);
+        }
+
+        if (retries != null) {
+            dbDeploy.setRetries(retries);
+        }
+
+        if (savepointInterval != null) {
+            dbDeploy.setSavepointInterval(savepointInterval);
+        }
+
+        dbDeploy.setResumable(resumable);
+
         return dbDeploy;
     }
 }